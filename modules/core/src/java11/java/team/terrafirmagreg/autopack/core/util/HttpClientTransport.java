@@ -0,0 +1,247 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport built on the {@code java.net.http} client, which multiplexes concurrent requests to the same host over a
+ * single HTTP/2 connection where the server supports it and falls back to pooled HTTP/1.1 connections otherwise.
+ * <p>
+ * Only compiled for Java 11 and loaded reflectively by the {@link WebClient}.
+ * <p>
+ * The request timeout of the client only covers the wait for the response headers. Response bodies are therefore read
+ * through a {@link BodyStream}, which fails with a {@link SocketTimeoutException} once no data arrived for
+ * {@link WebClient#READ_TIMEOUT}, just like the read timeout of a {@link java.net.HttpURLConnection}.
+ */
+public final class HttpClientTransport implements HttpTransport {
+    private final HttpClient client;
+
+    public HttpClientTransport() {
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofMillis(WebClient.CONNECT_TIMEOUT))
+            .build();
+    }
+
+    @Override
+    public Exchange send(String method, URL url, Map<String, String> headers, byte[] body) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(toUri(url))
+            .timeout(Duration.ofMillis(WebClient.READ_TIMEOUT))
+            .method(method, body != null
+                ? HttpRequest.BodyPublishers.ofByteArray(body)
+                : HttpRequest.BodyPublishers.noBody());
+        if ("http".equalsIgnoreCase(url.getProtocol())) {
+            // Cleartext HTTP/2 needs an upgrade handshake which plenty of servers handle badly
+            builder.version(HttpClient.Version.HTTP_1_1);
+        }
+        try {
+            headers.forEach(builder::header);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid request header for " + url, e);
+        }
+
+        try {
+            return new ResponseExchange(client.send(builder.build(), HttpResponse.BodyHandlers.ofPublisher()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while requesting " + url);
+        }
+    }
+
+    private static URI toUri(URL url) throws IOException {
+        try {
+            return url.toURI();
+        } catch (URISyntaxException e) {
+            // HttpURLConnection tolerates unescaped characters such as spaces in urls, quote them instead
+            try {
+                return new URI(url.getProtocol(), url.getUserInfo(), url.getHost(), url.getPort(), url.getPath(),
+                    url.getQuery(), url.getRef());
+            } catch (URISyntaxException nested) {
+                throw new IOException("Invalid url " + url, nested);
+            }
+        }
+    }
+
+    private static final class ResponseExchange implements Exchange {
+        private final HttpResponse<Flow.Publisher<List<ByteBuffer>>> response;
+        private final BodyStream body = new BodyStream(WebClient.READ_TIMEOUT);
+
+        private ResponseExchange(HttpResponse<Flow.Publisher<List<ByteBuffer>>> response) {
+            this.response = response;
+            response.body().subscribe(body);
+        }
+
+        @Override
+        public int status() {
+            return response.statusCode();
+        }
+
+        @Override
+        public Map<String, List<String>> headers() {
+            return response.headers().map();
+        }
+
+        @Override
+        public long contentLength() {
+            return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        }
+
+        @Override
+        public InputStream body() {
+            return body;
+        }
+
+        @Override
+        public void discard() {
+            try {
+                // Closing an unfinished body closes the connection, which is all that is left to do then
+                WebClient.drain(body);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Blocking view of a response body publisher whose reads give up after a fixed time without any data.
+     * <p>
+     * The body is requested one list of buffers at a time, so at most one of them is queued ahead of the reader.
+     */
+    static final class BodyStream extends InputStream implements Flow.Subscriber<List<ByteBuffer>> {
+        private static final Object END = new Object();
+
+        private final long readTimeout;
+        private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+        private volatile Flow.Subscription subscription;
+        private Iterator<ByteBuffer> buffers;
+        private ByteBuffer current;
+        private boolean finished;
+        private volatile boolean closed;
+
+        BodyStream(long readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (closed) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            queue.offer(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            queue.offer(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            queue.offer(END);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            ByteBuffer buffer = nextBuffer();
+            if (buffer == null) {
+                return -1;
+            }
+            int read = Math.min(len, buffer.remaining());
+            buffer.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return current != null ? current.remaining() : 0;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            finished = true;
+            Flow.Subscription subscription = this.subscription;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+
+        /**
+         * @return a buffer with remaining bytes, or null at the end of the body
+         */
+        @SuppressWarnings("unchecked")
+        private ByteBuffer nextBuffer() throws IOException {
+            while (current == null || !current.hasRemaining()) {
+                if (buffers != null && buffers.hasNext()) {
+                    current = buffers.next();
+                    continue;
+                }
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                if (finished) {
+                    return null;
+                }
+
+                Object item;
+                try {
+                    item = queue.poll(readTimeout, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    throw new InterruptedIOException("Interrupted while reading response body");
+                }
+                if (item == null) {
+                    close();
+                    throw new SocketTimeoutException("Read timed out");
+                } else if (item == END) {
+                    finished = true;
+                } else if (item instanceof Throwable) {
+                    finished = true;
+                    Throwable failure = (Throwable) item;
+                    throw failure instanceof IOException
+                        ? (IOException) failure
+                        : new IOException("Failed to read response body", failure);
+                } else {
+                    buffers = ((List<ByteBuffer>) item).iterator();
+                    subscription.request(1);
+                }
+            }
+            return current;
+        }
+    }
+}
@@ -6,10 +6,19 @@ import team.terrafirmagreg.autopack.ui.MainWindow;
 import team.terrafirmagreg.autopack.ui.theme.UITheme;
 import team.terrafirmagreg.autopack.util.PlatformDelegate;
 import lombok.Getter;
+import team.terrafirmagreg.autopack.core.cache.ArtifactStore;
+import team.terrafirmagreg.autopack.core.cache.CacheManager;
+import team.terrafirmagreg.autopack.core.cache.HashCache;
+import team.terrafirmagreg.autopack.core.cache.RemoteInformationCache;
+import team.terrafirmagreg.autopack.core.cache.WarmStartManifest;
 import team.terrafirmagreg.autopack.core.configuration.ConfigFileType;
 import team.terrafirmagreg.autopack.core.configuration.ConfigurationController;
 import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
+import team.terrafirmagreg.autopack.core.configuration.type.CurseBatchResolver;
+import team.terrafirmagreg.autopack.core.configuration.type.ModrinthBatchResolver;
+import team.terrafirmagreg.autopack.core.configuration.modpack.ModpackCacheConfiguration;
 import team.terrafirmagreg.autopack.core.configuration.modpack.ModpackConfiguration;
+import team.terrafirmagreg.autopack.core.configuration.modpack.ModpackNetworkConfiguration;
 import team.terrafirmagreg.autopack.core.exception.InstallException;
 import team.terrafirmagreg.autopack.core.manage.InstallController;
 import team.terrafirmagreg.autopack.core.manage.InstallError;
@@ -24,8 +33,13 @@ import team.terrafirmagreg.autopack.core.pakku.PakkuDiff;
 import team.terrafirmagreg.autopack.core.pakku.PakkuLockDiffer;
 import team.terrafirmagreg.autopack.core.pakku.PakkuLockSync;
 import team.terrafirmagreg.autopack.core.pakku.PakkuMissingMod;
+import team.terrafirmagreg.autopack.core.util.ConcurrencyController;
+import team.terrafirmagreg.autopack.core.util.ConnectivityProbe;
+import team.terrafirmagreg.autopack.core.util.HedgingPolicy;
 import team.terrafirmagreg.autopack.core.util.ImageLoader;
 import team.terrafirmagreg.autopack.core.util.NetworkExceptions;
+import team.terrafirmagreg.autopack.core.util.RetryPolicy;
+import team.terrafirmagreg.autopack.core.util.VirtualThreads;
 import team.terrafirmagreg.autopack.core.util.WebClient;
 import team.terrafirmagreg.autopack.core.util.WebGetResponse;
 
@@ -38,16 +52,23 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
 
 @Getter
 public class Director implements Callable<Boolean> {
@@ -55,28 +76,51 @@ public class Director implements Callable<Boolean> {
     private static final int DEFAULT_TIME = 1;
     private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
     private static final NoOpProgressCallback NO_OP_PROGRESS_CALLBACK = new NoOpProgressCallback();
-    private final ScheduledExecutorService taskExecutor = Executors.newScheduledThreadPool(Math.min(8, Math.max(4, Runtime.getRuntime().availableProcessors())),
+    private final ScheduledThreadPoolExecutor taskExecutor = new ScheduledThreadPoolExecutor(
+        ModpackNetworkConfiguration.createDefault().maxConcurrentRequests(),
         r -> new Thread(r, "Director Worker " + THREAD_NUMBER.incrementAndGet()));
     private final ConcurrentLinkedDeque<InstallError> errors = new ConcurrentLinkedDeque<>();
     private final ConcurrentLinkedDeque<InstalledMod> installedMods = new ConcurrentLinkedDeque<>();
+    private final ConcurrentLinkedDeque<RemoteMod> offlineSkippedMods = new ConcurrentLinkedDeque<>();
     private final InstallSelector installSelector = new InstallSelector();
     private final PlatformDelegate platform;
     private final LoggerDelegate logger;
-    private final LookAndFeel prevLookAndFeel;
-    private final ConfigurationController configurationController;
-    private final InstallController installController;
-    private final StopModReposts stopModReposts;
+    private LookAndFeel prevLookAndFeel;
+    private ConfigurationController configurationController;
+    private InstallController installController;
+    private StopModReposts stopModReposts;
+    private final WarmStartManifest warmStart;
     private String modpackRemoteVersion;
     private MainWindow ui;
+    private HashCache hashCache;
+    private RemoteInformationCache informationCache;
+    private ArtifactStore artifactStore;
+    private boolean artifactStoreResolved;
+    private boolean offline;
 
     public Director(PlatformDelegate platform) {
         this.platform = platform;
         this.logger = platform.logger();
-        this.prevLookAndFeel = UIManager.getLookAndFeel();
-        this.configurationController = new ConfigurationController(this, platform.configurationDirectory());
-        this.installController = new InstallController(this);
-        this.stopModReposts = new StopModReposts(this);
-        initializeTrustStore();
+        this.warmStart = new WarmStartManifest(
+            cacheDirectory().resolve(WarmStartManifest.FILE_NAME),
+            platform.configurationDirectory(),
+            platform.installationRoot().resolve(PakkuLockDiffer.LOCK_FILE_NAME),
+            platform.name() + " " + platform.side() + " " + buildStamp(),
+            logger
+        );
+    }
+
+    /**
+     * Identifies the Director build, so an update runs all checks again even if nothing else changed.
+     */
+    private static String buildStamp() {
+        try {
+            Path codeSource = Paths.get(Director.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            return codeSource.getFileName() + " " + Files.size(codeSource) + " "
+                + Files.getLastModifiedTime(codeSource).toMillis();
+        } catch (Exception e) {
+            return "unknown";
+        }
     }
 
     private void initializeTrustStore() {
@@ -97,60 +141,48 @@ public class Director implements Callable<Boolean> {
 
     @Override
     public Boolean call() throws Exception {
+        if (WarmStartManifest.isEnabled() && warmStart.matches()) {
+            logger.info("Configuration and installed files are unchanged since the last successful run, skipping all checks");
+            return true;
+        }
+        initializeTrustStore();
+
         PakkuDiff pakkuDiff = PakkuLockDiffer.detect(
             platform.installationRoot(),
             platform.configurationDirectory(),
             logger
         );
 
-        ModpackConfiguration modpackConfiguration = readBootstrapModpackConfiguration();
-        UITheme.apply(modpackConfiguration.uiTheme(), logger);
-
-        var messages = new Messages(platform);
+        // Headless runs never touch AWT or Swing, initializing them alone costs servers a noticeable part of startup
         if (!platform.headless()) {
-            ui = new MainWindow(messages, logger);
-            ui.getModpackName().setText(modpackConfiguration.packName());
-            var icon = modpackConfiguration.icon();
-            Image iconImage = null;
-            if (icon != null) {
-                try {
-                    iconImage = ImageLoader.getImage(icon.path(), icon.width(), icon.height());
-                } catch (Throwable e) {
-                    logger.error("Unable to load modpack icon {0}", icon.path(), e);
-                }
-            }
-            ui.setModpackIcon(iconImage, icon == null ? null : new Dimension(icon.width(), icon.height()));
-            ui.setLocationRelativeTo(null);
-            ui.addWindowListener(new WindowAdapter() {
-                @Override
-                public void windowClosing(WindowEvent e) {
-                    logger.info("User asked to exit");
-                    UnsafeExit.exit(0);
-                }
-            });
-            ui.setTitle(modpackConfiguration.packName());
-            ui.pack();
-            ui.setVisible(true);
+            openWindow(readBootstrapModpackConfiguration());
         }
 
         handlePakkuDiff(pakkuDiff);
 
-        configurationController.load();
-        List<RemoteMod> mods = configurationController.getConfigurations();
-        if (configurationController.getModpackConfiguration() != null) {
-            modpackConfiguration = configurationController.getModpackConfiguration();
+        getConfigurationController().load();
+        List<RemoteMod> mods = getConfigurationController().getConfigurations();
+        ModpackConfiguration modpackConfiguration;
+        if (getConfigurationController().getModpackConfiguration() != null) {
+            modpackConfiguration = getConfigurationController().getModpackConfiguration();
         } else {
             logger.warn("This modpack does not contain a modpack.json, if you are the author, consider adding one!");
             modpackConfiguration = ModpackConfiguration.createDefault();
         }
 
-        if (modpackConfiguration.checkStopModReposts()) {
-            stopModReposts.load();
+        configureNetwork(modpackConfiguration.network());
+        startCacheCleanup(modpackConfiguration.cache());
+        offline = detectOffline(modpackConfiguration, mods);
+
+        if (offline) {
+            logger.info("Skipping StopModReposts checks while offline");
+        } else if (modpackConfiguration.checkStopModReposts()) {
+            getStopModReposts().load();
         } else {
             logger.info("StopModReposts checks disabled via modpack.json");
         }
 
-        if (modpackConfiguration.remoteVersion() != null) {
+        if (modpackConfiguration.remoteVersion() != null && !offline) {
             try (WebGetResponse response = WebClient.get(modpackConfiguration.remoteVersion());
                  BufferedReader reader = new BufferedReader(new InputStreamReader(response.getInputStream(), StandardCharsets.UTF_8))) {
                 modpackRemoteVersion = reader.readLine();
@@ -171,27 +203,42 @@ public class Director implements Callable<Boolean> {
         var preInstallationPage = ui == null ? null
             : ui.progressPage("autopack.progress.checking");
 
-        List<RemoteMod> excludedMods = new ArrayList<>();
-        List<InstallableMod> reInstalls = new ArrayList<>();
-        List<InstallableMod> freshInstalls = new ArrayList<>();
-        List<Callable<Void>> preInstallTasks = installController.createPreInstallTasks(
+        prefetchInformation(mods);
+
+        // Without a UI there is no selection or consent to wait for, so mods which are installed regardless of
+        // the selection start downloading as soon as their own check completed
+        Set<InstallableMod> pipelinedMods = ConcurrentHashMap.newKeySet();
+        List<Future<Void>> pipelinedInstalls = Collections.synchronizedList(new ArrayList<>());
+        Consumer<InstallableMod> qualifiedListener = ui != null ? null : mod -> {
+            pipelinedMods.add(mod);
+            pipelinedInstalls.add(
+                taskExecutor.submit(getInstallController().createInstallTask(mod, this::noOpCallback)));
+        };
+
+        List<RemoteMod> excludedMods = Collections.synchronizedList(new ArrayList<>());
+        List<InstallableMod> reInstalls = Collections.synchronizedList(new ArrayList<>());
+        List<InstallableMod> freshInstalls = Collections.synchronizedList(new ArrayList<>());
+        List<Callable<Void>> preInstallTasks = getInstallController().createPreInstallTasks(
             mods,
             excludedMods,
             freshInstalls,
             reInstalls,
             preInstallationPage != null ?
                 preInstallationPage::createProgressCallback :
-                this::noOpCallback
+                this::noOpCallback,
+            qualifiedListener
         );
 
-        awaitAll(taskExecutor.invokeAll(preInstallTasks));
+        awaitAll(runQueries(preInstallTasks));
+        getInformationCache().record(mods);
         installSelector.accept(excludedMods, freshInstalls, reInstalls);
 
         if (hasFatalError()) {
             errorExit();
         }
 
-        if (ui != null && installSelector.hasSelectableOptions()) {
+        boolean selectionShown = ui != null && installSelector.hasSelectableOptions();
+        if (selectionShown) {
             var selection = ui.selectionPage(installSelector);
             selection.waitForNext();
         }
@@ -205,19 +252,24 @@ public class Director implements Callable<Boolean> {
         var installProgressPage = ui == null ? null :
             ui.progressPage("autopack.progress.installing", modpackConfiguration.packName());
 
-        List<Callable<Void>> installTasks = installController.createInstallTasks(
-            toInstall,
+        List<InstallableMod> remainingInstalls = toInstall.stream()
+            .filter(mod -> !pipelinedMods.contains(mod))
+            .collect(Collectors.toList());
+        List<Callable<Void>> installTasks = getInstallController().createInstallTasks(
+            remainingInstalls,
             installProgressPage != null ?
                 installProgressPage::createProgressCallback :
                 this::noOpCallback
         );
 
         installTasks.add(() -> {
-            installController.markDisabledMods(installSelector.computeDisabledMods());
+            getInstallController().markDisabledMods(installSelector.computeDisabledMods());
             return null;
         });
 
         awaitAll(taskExecutor.invokeAll(installTasks));
+        awaitAll(new ArrayList<>(pipelinedInstalls));
+        reportOfflineSkips();
 
         if (hasFatalError()) {
             errorExit();
@@ -227,6 +279,8 @@ public class Director implements Callable<Boolean> {
         if (!taskExecutor.awaitTermination(DEFAULT_TIME, DEFAULT_UNIT)) {
             logger.warn("Unable to terminate all tasks.");
         }
+        saveCaches();
+        recordWarmStart(modpackConfiguration, mods, pakkuDiff, selectionShown);
 
         if (modpackConfiguration.remoteVersion() != null && modpackConfiguration.localVersion() != null && modpackRemoteVersion != null && !modpackRemoteVersion.contains(modpackConfiguration.localVersion())) {
             logger.error("Modpack version mismatch!");
@@ -257,6 +311,261 @@ public class Director implements Callable<Boolean> {
         return !hasFatalError();
     }
 
+    private void openWindow(ModpackConfiguration modpackConfiguration) {
+        prevLookAndFeel = UIManager.getLookAndFeel();
+        UITheme.apply(modpackConfiguration.uiTheme(), logger);
+
+        ui = new MainWindow(new Messages(platform), logger);
+        ui.getModpackName().setText(modpackConfiguration.packName());
+        var icon = modpackConfiguration.icon();
+        Image iconImage = null;
+        if (icon != null) {
+            try {
+                iconImage = ImageLoader.getImage(icon.path(), icon.width(), icon.height());
+            } catch (Throwable e) {
+                logger.error("Unable to load modpack icon {0}", icon.path(), e);
+            }
+        }
+        ui.setModpackIcon(iconImage, icon == null ? null : new Dimension(icon.width(), icon.height()));
+        ui.setLocationRelativeTo(null);
+        ui.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                logger.info("User asked to exit");
+                UnsafeExit.exit(0);
+            }
+        });
+        ui.setTitle(modpackConfiguration.packName());
+        ui.pack();
+        ui.setVisible(true);
+    }
+
+    private void configureNetwork(ModpackNetworkConfiguration network) {
+        ConcurrencyController.setGlobal(new ConcurrencyController(
+            network.maxConcurrentRequests(),
+            network.maxRequestsPerHost(),
+            network.hostLimits(),
+            network.adaptive()
+        ));
+        taskExecutor.setCorePoolSize(network.maxConcurrentRequests());
+        HedgingPolicy.setGlobal(new HedgingPolicy(network.hedgeDelayMillis()));
+        RetryPolicy.setGlobal(new RetryPolicy(network.maxRetries()));
+        logger.debug("Using up to {0} concurrent requests, {1} per host{2}", network.maxConcurrentRequests(),
+            network.maxRequestsPerHost(), network.adaptive() ? " with adaptive limits" : "");
+    }
+
+    private void startCacheCleanup(ModpackCacheConfiguration cache) {
+        ArtifactStore store = getArtifactStore();
+        if (store == null) {
+            return;
+        }
+        long maxBytes = cache.maxSizeBytes();
+        String maxSize = System.getProperty(CacheManager.MAX_SIZE_PROPERTY);
+        if (maxSize != null) {
+            try {
+                maxBytes = Long.parseLong(maxSize.trim()) * 1024 * 1024;
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid artifact store size limit {0}", maxSize);
+            }
+        }
+        new CacheManager(store, maxBytes, cache.maxAgeMillis(), logger).startInBackground();
+    }
+
+    /**
+     * Lets the next launch skip all checks if it would come to the same result. Runs which depended on remote state,
+     * on the user's input or which did not complete cleanly have to be repeated.
+     */
+    private void recordWarmStart(ModpackConfiguration modpackConfiguration, List<RemoteMod> mods,
+                                 PakkuDiff pakkuDiff, boolean selectionShown) {
+        boolean repeatable = errors.isEmpty()
+            && !offline
+            && !selectionShown
+            && modpackConfiguration.remoteVersion() == null
+            && (pakkuDiff == null || pakkuDiff.isEmpty())
+            && mods.stream().noneMatch(mod -> mod.getInstallationPolicy().downloadAlways());
+        if (repeatable && WarmStartManifest.isEnabled()) {
+            warmStart.write();
+        } else {
+            warmStart.invalidate();
+        }
+    }
+
+    /**
+     * Runs the metadata queries on virtual threads where available, they mostly wait for responses and the
+     * concurrency controller already bounds the requests. Downloads stay on the platform thread pool.
+     */
+    private List<Future<Void>> runQueries(List<Callable<Void>> tasks) throws InterruptedException {
+        ExecutorService virtualExecutor = VirtualThreads.newPerTaskExecutor();
+        if (virtualExecutor == null) {
+            return taskExecutor.invokeAll(tasks);
+        }
+
+        logger.debug("Running {0} checks on virtual threads", tasks.size());
+        try {
+            return virtualExecutor.invokeAll(tasks);
+        } finally {
+            virtualExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Resolves remote information for as many mods as possible from the information cache and in bulk before the
+     * per-mod checks run, mods that could not be resolved here simply query their information on their own.
+     */
+    private void prefetchInformation(List<RemoteMod> mods) {
+        int cached = getInformationCache().apply(mods);
+        if (cached > 0) {
+            logger.info("Using cached remote information for {0} mods", cached);
+        }
+        if (offline) {
+            return;
+        }
+        new CurseBatchResolver(logger).resolve(mods);
+        new ModrinthBatchResolver(logger).resolve(mods);
+    }
+
+    /**
+     * Probes the servers the modpack needs, if none can be reached all requests are skipped instead of each waiting
+     * for its own timeout.
+     */
+    private boolean detectOffline(ModpackConfiguration modpackConfiguration, List<RemoteMod> mods)
+        throws InterruptedException {
+        String forced = System.getProperty(ConnectivityProbe.OFFLINE_PROPERTY);
+        boolean unreachable;
+        if ("false".equalsIgnoreCase(forced)) {
+            unreachable = false;
+        } else if ("true".equalsIgnoreCase(forced)) {
+            unreachable = true;
+        } else {
+            // Plenty of mods share a service, URL itself can't be used in sets as it resolves hosts to compare
+            Set<String> serviceUrls = new LinkedHashSet<>();
+            if (modpackConfiguration.remoteVersion() != null) {
+                serviceUrls.add(modpackConfiguration.remoteVersion().toString());
+            }
+            for (RemoteMod mod : mods) {
+                String serviceUrl = mod.remoteServiceUrl();
+                if (serviceUrl != null && serviceUrl.regionMatches(true, 0, "http", 0, 4)) {
+                    serviceUrls.add(serviceUrl);
+                }
+            }
+            List<URL> urls = new ArrayList<>();
+            for (String serviceUrl : serviceUrls) {
+                try {
+                    urls.add(new URL(serviceUrl));
+                } catch (MalformedURLException e) {
+                    logger.debug("Not probing invalid url {0}", serviceUrl);
+                }
+            }
+
+            long start = System.nanoTime();
+            unreachable = !ConnectivityProbe.isAnyReachable(urls, ConnectivityProbe.DEFAULT_TIMEOUT_MILLIS);
+            logger.debug("Probed connectivity to {0} servers in {1} ms", urls.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        WebClient.setOffline(unreachable);
+        if (unreachable) {
+            logger.warn("No server could be reached, continuing offline with local files and caches only");
+        }
+        return unreachable;
+    }
+
+    /**
+     * Called instead of reporting an error for a mod which could not be checked or installed because of offline mode.
+     */
+    public void skippedOffline(RemoteMod mod) {
+        offlineSkippedMods.add(mod);
+    }
+
+    private void reportOfflineSkips() {
+        if (offlineSkippedMods.isEmpty()) {
+            return;
+        }
+
+        List<String> names = offlineSkippedMods.stream().map(RemoteMod::offlineName).sorted().collect(Collectors.toList());
+        String listed = names.size() > 10
+            ? String.join(", ", names.subList(0, 10)) + " and " + (names.size() - 10) + " more"
+            : String.join(", ", names);
+        // Missing required mods keep the game from starting, missing optional ones only from being up to date
+        Level level = offlineSkippedMods.stream()
+            .anyMatch(mod -> !mod.getInstallationPolicy().continueOnFailedDownload()) ? Level.SEVERE : Level.WARNING;
+        String message = names.size() + " mods could not be checked or downloaded while offline: " + listed;
+        logger.log(level, "{0}", message);
+        addError(new InstallError(level, message));
+    }
+
+    public Path cacheDirectory() {
+        return platform.configurationDirectory().resolve(ConfigFileType.CACHE_DIRECTORY);
+    }
+
+    /**
+     * The controllers are created on first use, so a warm start never initializes Jackson through them.
+     */
+    public synchronized ConfigurationController getConfigurationController() {
+        if (configurationController == null) {
+            configurationController = new ConfigurationController(this, platform.configurationDirectory());
+        }
+        return configurationController;
+    }
+
+    public synchronized InstallController getInstallController() {
+        if (installController == null) {
+            installController = new InstallController(this);
+        }
+        return installController;
+    }
+
+    public synchronized StopModReposts getStopModReposts() {
+        if (stopModReposts == null) {
+            stopModReposts = new StopModReposts(this);
+        }
+        return stopModReposts;
+    }
+
+    public synchronized HashCache getHashCache() {
+        if (hashCache == null) {
+            hashCache = new HashCache(cacheDirectory().resolve(HashCache.FILE_NAME), logger);
+        }
+        return hashCache;
+    }
+
+    public synchronized RemoteInformationCache getInformationCache() {
+        if (informationCache == null) {
+            informationCache = new RemoteInformationCache(cacheDirectory().resolve(RemoteInformationCache.FILE_NAME), logger);
+        }
+        return informationCache;
+    }
+
+    /**
+     * @return the shared artifact store configured by system property or in the modpack configuration, or null if
+     * none is configured
+     */
+    public synchronized ArtifactStore getArtifactStore() {
+        if (!artifactStoreResolved) {
+            String location = System.getProperty(ArtifactStore.LOCATION_PROPERTY);
+            ModpackConfiguration modpackConfiguration = getConfigurationController().getModpackConfiguration();
+            if ((location == null || location.isEmpty()) && modpackConfiguration != null) {
+                location = modpackConfiguration.artifactStore();
+            }
+            if (location != null && !location.isEmpty()) {
+                Path root = platform.installationRoot().resolve(location).toAbsolutePath().normalize();
+                artifactStore = new ArtifactStore(root, logger);
+                logger.debug("Using artifact store at {0}", root);
+            }
+            artifactStoreResolved = true;
+        }
+        return artifactStore;
+    }
+
+    private synchronized void saveCaches() {
+        if (hashCache != null) {
+            hashCache.save();
+        }
+        if (informationCache != null) {
+            informationCache.save();
+        }
+    }
+
     public List<InstalledMod> getInstalledMods() {
         return new ArrayList<>(installedMods);
     }
@@ -366,6 +675,8 @@ public class Director implements Callable<Boolean> {
         });
         logger.error("============================================================");
 
+        saveCaches();
+
         if (!platform.headless()) {
             try {
                 if (ui != null) {
@@ -417,6 +728,6 @@ public class Director implements Callable<Boolean> {
     }
 
     public void checkUrl(URL url) throws InstallException {
-        this.stopModReposts.check(url);
+        getStopModReposts().check(url);
     }
 }
@@ -0,0 +1,196 @@
+package team.terrafirmagreg.autopack.core.cache;
+
+import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store of verified downloads which can be shared by every instance on a machine, stored as
+ * {@code <algorithm>/<first two hash characters>/<hash>}.
+ * <p>
+ * Files are installed from and added to the store as hard links where the file system supports them and copied
+ * otherwise, so identical files occupy disk space only once. Stored files are not trusted blindly, callers verify
+ * them against the expected hashes before installing them.
+ * <p>
+ * Using a stored file touches a {@code .used} marker next to it, so the {@link CacheManager} can evict the least
+ * recently used files without changing the modification time shared with every hard link. Files are leased while
+ * they are read and are never evicted during that time.
+ */
+public class ArtifactStore {
+    public static final String LOCATION_PROPERTY = "autopack.artifactStore";
+    private static final Pattern ALGORITHM_PATTERN = Pattern.compile("[A-Za-z0-9-]+");
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-fA-F]{8,}");
+    static final String USED_MARKER_SUFFIX = ".used";
+    static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path root;
+    private final LoggerDelegate logger;
+    private final Map<Path, Integer> leases = new HashMap<>();
+
+    public ArtifactStore(Path root, LoggerDelegate logger) {
+        this.root = root;
+        this.logger = logger;
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    /**
+     * @param hashes the expected hashes keyed by algorithm
+     * @return the stored files which claim to have one of the hashes, which still have to be verified
+     */
+    public List<Path> candidates(Map<String, String> hashes) {
+        List<Path> candidates = new ArrayList<>();
+        for (Map.Entry<String, String> hash : hashes.entrySet()) {
+            Path path = pathFor(hash.getKey(), hash.getValue());
+            if (path != null && Files.isRegularFile(path) && !candidates.contains(path)) {
+                candidates.add(path);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Protects a stored file from eviction until the lease is closed. The file may already be gone when leased, so
+     * callers check for it after taking the lease.
+     */
+    public Lease lease(Path storedFile) {
+        synchronized (leases) {
+            leases.merge(storedFile, 1, Integer::sum);
+        }
+        return new Lease(storedFile);
+    }
+
+    /**
+     * Deletes the stored names of a file unless any of them is currently leased.
+     *
+     * @return whether the names were deleted
+     */
+    boolean evict(List<Path> storedFiles) throws IOException {
+        synchronized (leases) {
+            for (Path storedFile : storedFiles) {
+                if (leases.containsKey(storedFile)) {
+                    return false;
+                }
+            }
+            for (Path storedFile : storedFiles) {
+                Files.deleteIfExists(storedFile);
+            }
+        }
+        for (Path storedFile : storedFiles) {
+            Files.deleteIfExists(usedMarker(storedFile));
+        }
+        return true;
+    }
+
+    /**
+     * Installs a stored file to the target, replacing an existing file.
+     */
+    public void install(Path storedFile, Path target) throws IOException {
+        Path tempFile = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        Files.deleteIfExists(tempFile);
+        link(storedFile, tempFile);
+        Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        markUsed(storedFile);
+    }
+
+    /**
+     * Adds a verified file to the store under every given hash, failures only mean the file is not shared.
+     *
+     * @param hashes the verified hashes of the file keyed by algorithm
+     */
+    public void store(Path file, Map<String, String> hashes) {
+        Path primary = null;
+        for (Map.Entry<String, String> hash : hashes.entrySet()) {
+            Path path = pathFor(hash.getKey(), hash.getValue());
+            if (path == null || Files.isRegularFile(path)) {
+                continue;
+            }
+
+            Path tempFile = path.resolveSibling(path.getFileName() + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+            try {
+                Files.createDirectories(path.getParent());
+                Files.deleteIfExists(tempFile);
+                link(primary != null ? primary : file, tempFile);
+                // Another instance may have stored the same file in the meantime, which is fine
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+                primary = path;
+            } catch (IOException e) {
+                logger.warn("Failed to add {0} to the artifact store {1}", file, root, e);
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    static Path usedMarker(Path storedFile) {
+        return storedFile.resolveSibling(storedFile.getFileName() + USED_MARKER_SUFFIX);
+    }
+
+    private void markUsed(Path storedFile) {
+        Path marker = usedMarker(storedFile);
+        try {
+            if (Files.exists(marker)) {
+                Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                Files.createFile(marker);
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to mark {0} as used", storedFile, e);
+        }
+    }
+
+    private Path pathFor(String algorithm, String hash) {
+        // Both end up in the path, so anything unexpected must not be able to escape the store
+        if (algorithm == null || hash == null
+            || !ALGORITHM_PATTERN.matcher(algorithm).matches() || !HASH_PATTERN.matcher(hash).matches()) {
+            return null;
+        }
+        String normalizedHash = hash.toLowerCase(Locale.ROOT);
+        return root.resolve(algorithm.toLowerCase(Locale.ROOT))
+            .resolve(normalizedHash.substring(0, 2))
+            .resolve(normalizedHash);
+    }
+
+    private static void link(Path existing, Path link) throws IOException {
+        try {
+            Files.createLink(link, existing);
+        } catch (IOException | UnsupportedOperationException e) {
+            // Different file systems or no hard link support, a plain copy may still be cloned by the file system
+            Files.copy(existing, link, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public final class Lease implements AutoCloseable {
+        private final Path storedFile;
+        private boolean closed;
+
+        private Lease(Path storedFile) {
+            this.storedFile = storedFile;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            synchronized (leases) {
+                leases.computeIfPresent(storedFile, (path, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package team.terrafirmagreg.autopack.core.cache;
+
+import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the artifact store within a byte budget by evicting files which were not used for too long and then the
+ * least recently used ones, until the store fits.
+ * <p>
+ * Hard links of the same file under different hashes are accounted and evicted together. Files leased by an
+ * install in progress are skipped, as are temporary files of stores still running in other instances.
+ */
+public class CacheManager {
+    public static final String MAX_SIZE_PROPERTY = "autopack.artifactStore.maxSize";
+    private static final long STALE_TEMP_FILE_AGE = TimeUnit.DAYS.toMillis(1);
+
+    private final ArtifactStore store;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final LoggerDelegate logger;
+
+    public CacheManager(ArtifactStore store, long maxBytes, long maxAgeMillis, LoggerDelegate logger) {
+        this.store = store;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.logger = logger;
+    }
+
+    /**
+     * Runs a collection on a low priority daemon thread, so it neither delays the installation nor the JVM exit.
+     */
+    public Thread startInBackground() {
+        Thread thread = new Thread(() -> {
+            try {
+                collect();
+            } catch (IOException e) {
+                logger.warn("Failed to clean up the artifact store {0}", store.root(), e);
+            }
+        }, "Director Cache Cleanup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * @return the amount of bytes freed
+     */
+    public long collect() throws IOException {
+        if (!Files.isDirectory(store.root())) {
+            return 0;
+        }
+
+        long now = System.currentTimeMillis();
+        Map<Object, Artifact> artifacts = new LinkedHashMap<>();
+        List<Path> staleTempFiles = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(store.root())) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // Removed concurrently
+                    continue;
+                }
+                if (!attributes.isRegularFile() || name.endsWith(ArtifactStore.USED_MARKER_SUFFIX)) {
+                    continue;
+                }
+                if (name.endsWith(ArtifactStore.TEMP_SUFFIX)) {
+                    if (attributes.lastModifiedTime().toMillis() < now - STALE_TEMP_FILE_AGE) {
+                        staleTempFiles.add(file);
+                    }
+                    continue;
+                }
+
+                Object key = attributes.fileKey() != null ? attributes.fileKey() : file;
+                Artifact artifact = artifacts.computeIfAbsent(key, k -> new Artifact(attributes.size()));
+                artifact.paths.add(file);
+                artifact.lastUsed = Math.max(artifact.lastUsed, lastUsed(file, attributes));
+            }
+        }
+
+        for (Path staleTempFile : staleTempFiles) {
+            Files.deleteIfExists(staleTempFile);
+        }
+
+        long total = artifacts.values().stream().mapToLong(artifact -> artifact.size).sum();
+        List<Artifact> byLastUse = new ArrayList<>(artifacts.values());
+        byLastUse.sort(Comparator.comparingLong(artifact -> artifact.lastUsed));
+
+        long freed = 0;
+        int evicted = 0;
+        for (Artifact artifact : byLastUse) {
+            boolean expired = artifact.lastUsed < now - maxAgeMillis;
+            if (!expired && total - freed <= maxBytes) {
+                break;
+            }
+            if (store.evict(artifact.paths)) {
+                freed += artifact.size;
+                evicted++;
+            }
+        }
+
+        if (evicted > 0) {
+            logger.info("Evicted {0} files ({1} bytes) from the artifact store {2}", evicted, freed, store.root());
+        }
+        return freed;
+    }
+
+    private static long lastUsed(Path file, BasicFileAttributes attributes) {
+        long lastUsed = attributes.lastModifiedTime().toMillis();
+        Path marker = ArtifactStore.usedMarker(file);
+        try {
+            if (Files.exists(marker)) {
+                lastUsed = Math.max(lastUsed, Files.getLastModifiedTime(marker).toMillis());
+            }
+        } catch (IOException ignored) {
+        }
+        return lastUsed;
+    }
+
+    private static final class Artifact {
+        private final long size;
+        private final List<Path> paths = new ArrayList<>();
+        private long lastUsed;
+
+        private Artifact(long size) {
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package team.terrafirmagreg.autopack.core.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-disk index of file hashes keyed by path and validated by the (size, last modified, file key) tuple, so
+ * unchanged files don't have to be read again on every launch.
+ */
+public class HashCache extends JsonFileCache<HashCache.Entry> {
+    public static final String FILE_NAME = "file-hashes.json";
+    private static final int FORMAT_VERSION = 1;
+    private static final long UNUSED_ENTRY_LIFETIME = TimeUnit.DAYS.toMillis(30);
+
+    public HashCache(Path cacheFile, LoggerDelegate logger) {
+        super(cacheFile, logger, "hash cache", FORMAT_VERSION, UNUSED_ENTRY_LIFETIME);
+    }
+
+    /**
+     * @return the cached hashes keyed by algorithm if the file did not change since they were stored, otherwise null
+     */
+    public Map<String, String> lookup(Path file, BasicFileAttributes attributes) {
+        ensureLoaded();
+        Entry entry = entries.get(key(file));
+        if (entry == null || !entry.matches(attributes)) {
+            return null;
+        }
+        entry.lastUsed = System.currentTimeMillis();
+        markDirty();
+        return entry.hashes;
+    }
+
+    /**
+     * Records hashes computed for the file, merging them with already known hashes if the file is unchanged.
+     *
+     * @param attributes the attributes read before the hashes were computed
+     */
+    public void store(Path file, BasicFileAttributes attributes, Map<String, String> hashes) {
+        ensureLoaded();
+        entries.compute(key(file), (key, previous) -> {
+            Map<String, String> merged = new LinkedHashMap<>();
+            if (previous != null && previous.matches(attributes)) {
+                merged.putAll(previous.hashes);
+            }
+            merged.putAll(hashes);
+            return new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), fileKey(attributes),
+                Collections.unmodifiableMap(merged));
+        });
+        markDirty();
+    }
+
+    @Override
+    protected Entry readEntry(JsonNode node) {
+        Map<String, String> hashes = new LinkedHashMap<>();
+        node.path("hashes").fields().forEachRemaining(hash -> hashes.put(hash.getKey(), hash.getValue().asText()));
+        return new Entry(
+            node.path("size").asLong(-1),
+            node.path("lastModified").asLong(-1),
+            node.hasNonNull("fileKey") ? node.get("fileKey").asText() : null,
+            Collections.unmodifiableMap(hashes)
+        );
+    }
+
+    @Override
+    protected void writeEntry(Entry entry, ObjectNode node) {
+        node.put("size", entry.size);
+        node.put("lastModified", entry.lastModified);
+        if (entry.fileKey != null) {
+            node.put("fileKey", entry.fileKey);
+        }
+        ObjectNode hashesNode = node.putObject("hashes");
+        entry.hashes.forEach(hashesNode::put);
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    private static String fileKey(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+        return fileKey != null ? fileKey.toString() : null;
+    }
+
+    static final class Entry extends JsonFileCache.Entry {
+        private final long size;
+        private final long lastModified;
+        private final String fileKey;
+        private final Map<String, String> hashes;
+
+        private Entry(long size, long lastModified, String fileKey, Map<String, String> hashes) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fileKey = fileKey;
+            this.hashes = hashes;
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                && lastModified == attributes.lastModifiedTime().toMillis()
+                && Objects.equals(fileKey, HashCache.fileKey(attributes));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package team.terrafirmagreg.autopack.core.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import team.terrafirmagreg.autopack.core.configuration.ConfigurationController;
+import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versioned json file of keyed entries which is read on first use and written back on {@link #save()}, dropping
+ * entries which were not used for longer than their lifetime. A file of another format version is ignored.
+ */
+abstract class JsonFileCache<E extends JsonFileCache.Entry> {
+    protected final Path cacheFile;
+    protected final LoggerDelegate logger;
+    protected final Map<String, E> entries = new ConcurrentHashMap<>();
+    private final String description;
+    private final int formatVersion;
+    private final long unusedEntryLifetime;
+    private volatile boolean loaded;
+    private volatile boolean dirty;
+
+    /**
+     * @param description what the cache holds, for log messages
+     */
+    protected JsonFileCache(Path cacheFile, LoggerDelegate logger, String description, int formatVersion,
+                            long unusedEntryLifetime) {
+        this.cacheFile = cacheFile;
+        this.logger = logger;
+        this.description = description;
+        this.formatVersion = formatVersion;
+        this.unusedEntryLifetime = unusedEntryLifetime;
+    }
+
+    /**
+     * @return the entry read from the node, or null to skip it
+     */
+    protected abstract E readEntry(JsonNode node);
+
+    protected abstract void writeEntry(E entry, ObjectNode node);
+
+    public void save() {
+        if (!loaded || !dirty) {
+            return;
+        }
+
+        ObjectMapper mapper = ConfigurationController.OBJECT_MAPPER;
+        ObjectNode root = mapper.createObjectNode();
+        root.put("version", formatVersion);
+        ObjectNode entriesNode = root.putObject("entries");
+
+        long expiry = System.currentTimeMillis() - unusedEntryLifetime;
+        for (Map.Entry<String, E> mapEntry : entries.entrySet()) {
+            E entry = mapEntry.getValue();
+            if (entry.lastUsed < expiry) {
+                continue;
+            }
+            ObjectNode entryNode = entriesNode.putObject(mapEntry.getKey());
+            writeEntry(entry, entryNode);
+            entryNode.put("lastUsed", entry.lastUsed);
+        }
+
+        Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            try (OutputStream stream = Files.newOutputStream(tempFile)) {
+                mapper.writeValue(stream, root);
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            dirty = false;
+        } catch (IOException e) {
+            logger.warn("Failed to save {0} {1}", description, cacheFile, e);
+        }
+    }
+
+    protected void markDirty() {
+        dirty = true;
+    }
+
+    protected void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            if (Files.isRegularFile(cacheFile)) {
+                try (InputStream stream = Files.newInputStream(cacheFile)) {
+                    readEntries(ConfigurationController.OBJECT_MAPPER.readTree(stream));
+                } catch (IOException e) {
+                    logger.warn("Failed to read {0} {1}, starting with an empty cache", description, cacheFile, e);
+                    entries.clear();
+                }
+            }
+            loaded = true;
+        }
+    }
+
+    private void readEntries(JsonNode root) {
+        if (root == null || root.path("version").asInt() != formatVersion) {
+            return;
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = root.path("entries").fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            E entry = readEntry(field.getValue());
+            if (entry != null) {
+                entry.lastUsed = field.getValue().path("lastUsed").asLong(0);
+                entries.put(field.getKey(), entry);
+            }
+        }
+    }
+
+    abstract static class Entry {
+        volatile long lastUsed = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,93 @@
+package team.terrafirmagreg.autopack.core.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
+import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-disk cache of resolved remote information keyed by {@link RemoteMod#informationCacheKey()}. Only mods pointing
+ * to immutable remote files provide a key, so cached entries never have to be revalidated.
+ */
+public class RemoteInformationCache extends JsonFileCache<RemoteInformationCache.Entry> {
+    public static final String FILE_NAME = "remote-information.json";
+    private static final int FORMAT_VERSION = 1;
+    private static final long UNUSED_ENTRY_LIFETIME = TimeUnit.DAYS.toMillis(90);
+
+    public RemoteInformationCache(Path cacheFile, LoggerDelegate logger) {
+        super(cacheFile, logger, "remote information cache", FORMAT_VERSION, UNUSED_ENTRY_LIFETIME);
+    }
+
+    /**
+     * Hands cached information to every mod that has an entry, so those mods don't have to query it again.
+     *
+     * @return the amount of mods served from the cache
+     */
+    public int apply(List<RemoteMod> mods) {
+        ensureLoaded();
+        int served = 0;
+        for (RemoteMod mod : mods) {
+            String key = mod.informationCacheKey();
+            Entry entry = key != null ? entries.get(key) : null;
+            if (entry == null) {
+                continue;
+            }
+            boolean accepted;
+            try {
+                accepted = mod.importInformation(entry.information);
+            } catch (IllegalArgumentException e) {
+                accepted = false;
+            }
+            if (accepted) {
+                entry.lastUsed = System.currentTimeMillis();
+                served++;
+            } else {
+                logger.debug("Discarding unusable cached information for {0}", key);
+                entries.remove(key);
+            }
+            markDirty();
+        }
+        return served;
+    }
+
+    /**
+     * Records the information of every mod which resolved it since the cache was applied.
+     */
+    public void record(List<RemoteMod> mods) {
+        ensureLoaded();
+        for (RemoteMod mod : mods) {
+            String key = mod.informationCacheKey();
+            if (key == null || entries.containsKey(key)) {
+                continue;
+            }
+            JsonNode information = mod.exportInformation();
+            if (information != null) {
+                entries.put(key, new Entry(information));
+                markDirty();
+            }
+        }
+    }
+
+    @Override
+    protected Entry readEntry(JsonNode node) {
+        JsonNode information = node.get("information");
+        return information != null && information.isObject() ? new Entry(information) : null;
+    }
+
+    @Override
+    protected void writeEntry(Entry entry, ObjectNode node) {
+        node.set("information", entry.information);
+    }
+
+    static final class Entry extends JsonFileCache.Entry {
+        private final JsonNode information;
+
+        private Entry(JsonNode information) {
+            this.information = information;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package team.terrafirmagreg.autopack.core.cache;
+
+import team.terrafirmagreg.autopack.core.configuration.ConfigFileType;
+import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Fingerprint of everything a successful run depended on: the configuration directory, the pakku lock file and the
+ * state of every file the run managed. While the fingerprint still matches the next launch would come to the same
+ * result, so it can skip the whole pipeline.
+ * <p>
+ * The manifest is a plain text file and checking it touches neither Jackson, the network stack nor Swing, keeping
+ * the check itself as cheap as the few stat calls it needs. Configuration files are compared by content, managed
+ * files by size and modification time, watched directories additionally by the names they contain.
+ */
+public class WarmStartManifest {
+    public static final String FILE_NAME = "warm-start.txt";
+    public static final String ENABLED_PROPERTY = "autopack.warmStart";
+    private static final String FORMAT = "autopack-warm-start 1";
+    // Not taken from ConfigFileType, loading it would load the configuration model and with it Jackson
+    private static final String REMOTE_CONFIG_SUFFIX = ".remote.json";
+
+    private final Path manifestFile;
+    private final Path configurationDirectory;
+    private final Path lockFile;
+    private final String environment;
+    private final LoggerDelegate logger;
+    private final Set<Path> watchedPaths = ConcurrentHashMap.newKeySet();
+    private final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param environment describes everything else the result depends on, like the platform and the Director build
+     */
+    public WarmStartManifest(Path manifestFile, Path configurationDirectory, Path lockFile, String environment,
+                             LoggerDelegate logger) {
+        this.manifestFile = manifestFile;
+        this.configurationDirectory = configurationDirectory;
+        this.lockFile = lockFile;
+        this.environment = environment;
+        this.logger = logger;
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    /**
+     * Includes whether the file or directory exists, and its size and modification time, in the next manifest.
+     */
+    public void watch(Path path) {
+        watchedPaths.add(path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Includes the files a directory contains in the next manifest, for decisions which depended on all of them.
+     */
+    public void watchDirectory(Path directory) {
+        watchedDirectories.add(directory.toAbsolutePath().normalize());
+    }
+
+    /**
+     * @return whether the manifest of the last successful run still matches
+     */
+    public boolean matches() {
+        if (!Files.isRegularFile(manifestFile)) {
+            return false;
+        }
+
+        String fingerprint;
+        List<Path> paths = new ArrayList<>();
+        List<Path> directories = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+            if (!FORMAT.equals(reader.readLine())) {
+                return false;
+            }
+            fingerprint = reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("path ")) {
+                    paths.add(Paths.get(line.substring(5)));
+                } else if (line.startsWith("directory ")) {
+                    directories.add(Paths.get(line.substring(10)));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Ignoring unreadable warm start manifest {0}", manifestFile, e);
+            return false;
+        }
+
+        try {
+            return fingerprint != null && fingerprint.equals(fingerprint(paths, directories));
+        } catch (IOException e) {
+            logger.debug("Unable to fingerprint the installation for a warm start", e);
+            return false;
+        }
+    }
+
+    /**
+     * Records the current state of the configuration and of all watched files and directories.
+     */
+    public void write() {
+        Set<Path> paths = new TreeSet<>(watchedPaths);
+        Set<Path> directories = new TreeSet<>(watchedDirectories);
+        Path tempFile = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        try {
+            String fingerprint = fingerprint(paths, directories);
+            if (fingerprint == null) {
+                invalidate();
+                return;
+            }
+            Files.createDirectories(manifestFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                writer.write(FORMAT);
+                writer.newLine();
+                writer.write(fingerprint);
+                writer.newLine();
+                for (Path path : paths) {
+                    writer.write("path " + path);
+                    writer.newLine();
+                }
+                for (Path directory : directories) {
+                    writer.write("directory " + directory);
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Failed to save warm start manifest {0}", manifestFile, e);
+            invalidate();
+        }
+    }
+
+    /**
+     * Makes sure the next launch runs all checks.
+     */
+    public void invalidate() {
+        try {
+            Files.deleteIfExists(manifestFile);
+        } catch (IOException e) {
+            logger.warn("Failed to delete warm start manifest {0}", manifestFile, e);
+        }
+    }
+
+    /**
+     * @return the fingerprint, or null if the configuration depends on remote state and can't be fingerprinted
+     */
+    private String fingerprint(Collection<Path> paths, Collection<Path> directories) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available", e);
+        }
+        update(digest, "environment " + environment);
+
+        List<Path> configFiles = new ArrayList<>();
+        if (Files.isDirectory(configurationDirectory)) {
+            Path cacheDirectory = configurationDirectory.resolve(ConfigFileType.CACHE_DIRECTORY);
+            try (Stream<Path> walk = Files.walk(configurationDirectory)) {
+                walk.filter(path -> !path.startsWith(cacheDirectory))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .forEach(configFiles::add);
+            }
+        }
+        for (Path configFile : configFiles) {
+            if (configFile.getFileName().toString().endsWith(REMOTE_CONFIG_SUFFIX)) {
+                return null;
+            }
+            update(digest, "config " + configurationDirectory.relativize(configFile));
+            digest.update(Files.readAllBytes(configFile));
+        }
+
+        update(digest, "lock");
+        if (Files.isRegularFile(lockFile)) {
+            digest.update(Files.readAllBytes(lockFile));
+        }
+
+        for (Path path : paths) {
+            update(digest, "path " + path + " " + state(path));
+        }
+        for (Path directory : directories) {
+            update(digest, "directory " + directory + " " + state(directory));
+            if (Files.isDirectory(directory)) {
+                List<Path> entries = new ArrayList<>();
+                try (Stream<Path> list = Files.list(directory)) {
+                    list.sorted().forEach(entries::add);
+                }
+                for (Path entry : entries) {
+                    update(digest, "entry " + entry.getFileName() + " " + state(entry));
+                }
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static String state(Path path) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return "missing";
+        }
+        if (attributes.isDirectory()) {
+            return "directory";
+        }
+        return attributes.size() + " " + attributes.lastModifiedTime().toMillis();
+    }
+
+    private static void update(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+}
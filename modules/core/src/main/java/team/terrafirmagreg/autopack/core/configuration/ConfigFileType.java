@@ -23,6 +23,11 @@ public enum ConfigFileType {
     BUNDLE(".bundle.json", "bundle", null, false),
     MODPACK("modpack.json", "modpack", ModpackConfiguration.class, false);
 
+    /**
+     * Directory inside the configuration directory holding Director's own caches, never treated as configuration.
+     */
+    public static final String CACHE_DIRECTORY = ".cache";
+
     private static final List<ConfigFileType> BUNDLE_ENTRY_TYPES = Collections.unmodifiableList(
         Arrays.asList(CURSE, MODRINTH, URL, MODIFY));
 
@@ -76,6 +81,10 @@ public enum ConfigFileType {
         return MODPACK.suffix.equals(fileName);
     }
 
+    public static boolean isCachePath(Path configurationDirectory, Path file) {
+        return file.startsWith(configurationDirectory.resolve(CACHE_DIRECTORY));
+    }
+
     public static ConfigFileType fromPath(Path file) {
         Path fileName = file.getFileName();
         if (fileName == null) {
@@ -35,6 +35,7 @@ public final class ConfigValidationRunner {
         try (Stream<Path> paths = Files.walk(configurationDirectory)) {
             paths
                 .filter(Files::isRegularFile)
+                .filter(p -> !ConfigFileType.isCachePath(configurationDirectory, p))
                 .filter(p -> p.toString().endsWith(".json"))
                 .filter(p -> !ConfigFileType.isModpackFileName(p.getFileName().toString()))
                 .sorted(Comparator.comparing(Path::toString))
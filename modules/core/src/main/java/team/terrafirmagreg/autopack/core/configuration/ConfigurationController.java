@@ -53,6 +53,7 @@ public class ConfigurationController {
         try (Stream<Path> paths = Files.walk(configurationDirectory)) {
             paths
                 .filter(Files::isRegularFile)
+                .filter(p -> !ConfigFileType.isCachePath(configurationDirectory, p))
                 .filter(p -> p.toString().endsWith(".json"))
                 .filter(p -> !ConfigFileType.isModpackFileName(p.getFileName().toString()))
                 .sorted()
@@ -241,6 +242,7 @@ public class ConfigurationController {
     private void handleModifyConfig(ModifyMod modifyMod) {
         Path installationRoot = director.getPlatform().installationRoot().toAbsolutePath().normalize();
         Path modifyModFolderPath = installationRoot.resolve(modifyMod.folder());
+        director.getWarmStart().watch(modifyModFolderPath);
 
         if (modifyMod.fileName() == null) {
             if (Files.isDirectory(modifyModFolderPath) && modifyMod.delete()) {
@@ -256,6 +258,7 @@ public class ConfigurationController {
 
         Path modifyModFilePath = modifyModFolderPath.resolve(modifyMod.fileName());
         Path targetPath = null;
+        director.getWarmStart().watch(modifyModFilePath);
 
         try {
             if (Files.isRegularFile(modifyModFilePath)) {
@@ -283,6 +286,10 @@ public class ConfigurationController {
         }
 
         Path finalTarget = targetPath;
+        if (finalTarget != null) {
+            director.getWarmStart().watch(finalTarget);
+            director.getWarmStart().watch(finalTarget.resolveSibling(finalTarget.getFileName() + ".disabled-by-mod-director"));
+        }
 
         safeModify(() -> {
             if (!Files.isRegularFile(modifyModFilePath)) {
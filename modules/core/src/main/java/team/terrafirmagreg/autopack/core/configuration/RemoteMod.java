@@ -1,11 +1,13 @@
 package team.terrafirmagreg.autopack.core.configuration;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.Getter;
 import lombok.experimental.SuperBuilder;
 import team.terrafirmagreg.autopack.Director;
 import team.terrafirmagreg.autopack.core.exception.InstallException;
 import team.terrafirmagreg.autopack.core.manage.ProgressCallback;
+import team.terrafirmagreg.autopack.core.util.MultiDigest;
 
 import java.nio.file.Path;
 import java.util.Collections;
@@ -69,8 +71,47 @@ public abstract class RemoteMod {
 
     public abstract RemoteModInformation queryInformation() throws InstallException;
 
+    /**
+     * @return the url of the service this mod is queried and downloaded from, used to check connectivity before any
+     * request is made, or null if it has none
+     */
+    public String remoteServiceUrl() {
+        return null;
+    }
+
+    /**
+     * @return a key identifying the immutable remote file this mod points to, or null if the information of this
+     * mod can't be cached because the remote side may change
+     */
+    public String informationCacheKey() {
+        return null;
+    }
+
+    /**
+     * @return the resolved remote information to store in the information cache, or null if nothing was resolved yet
+     */
+    public JsonNode exportInformation() {
+        return null;
+    }
+
+    /**
+     * Restores information previously returned by {@link #exportInformation()}, so {@link #queryInformation()} can
+     * answer without network access.
+     *
+     * @return whether the information was accepted
+     */
+    public boolean importInformation(JsonNode information) {
+        return false;
+    }
+
+    /**
+     * Downloads the mod to the target file.
+     *
+     * @param digest digest to feed with the downloaded bytes so the result can be verified without reading the
+     *               file again, may be null. Implementations which can't feed it leave it unfinished.
+     */
     public abstract void performInstall(Path targetFile, ProgressCallback progressCallback, Director director,
-                                        RemoteModInformation information) throws InstallException;
+                                        RemoteModInformation information, MultiDigest digest) throws InstallException;
 
     public boolean forceInject() {
         return inject != null ? inject : folder == null;
@@ -5,14 +5,15 @@ import lombok.Builder;
 import lombok.extern.jackson.Jacksonized;
 import team.terrafirmagreg.autopack.util.PlatformDelegate;
 import team.terrafirmagreg.autopack.util.Side;
+import team.terrafirmagreg.autopack.core.cache.HashCache;
 import team.terrafirmagreg.autopack.core.util.HashResult;
+import team.terrafirmagreg.autopack.core.util.MultiDigest;
 
 import java.io.IOException;
-import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -25,46 +26,104 @@ public class RemoteModMetadata {
     @JsonProperty
     private final Side side;
 
+    /**
+     * @return the expected hashes keyed by algorithm, empty if none are configured
+     */
+    public Map<String, String> hashes() {
+        return hashes != null ? Collections.unmodifiableMap(hashes) : Collections.emptyMap();
+    }
+
     public HashResult checkHashes(Path file, PlatformDelegate platform) {
+        return checkHashes(file, platform, null);
+    }
+
+    /**
+     * Checks the hashes of the file, answering from the hash cache without reading the file if its size,
+     * modification time and file key did not change since the hashes were computed.
+     *
+     * @param cache the hash cache to consult and update, may be null
+     */
+    public HashResult checkHashes(Path file, PlatformDelegate platform, HashCache cache) {
         if (hashes == null) {
             return HashResult.UNKNOWN;
         }
 
-        byte[] data;
+        MultiDigest digest = createDigest(platform);
+        if (digest.isEmpty()) {
+            platform.logger().warn("All given hash algorithms are not supported by the JVM");
+            return HashResult.UNKNOWN;
+        }
+
+        BasicFileAttributes attributes = null;
+        if (cache != null) {
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                Map<String, String> cached = cache.lookup(file, attributes);
+                if (cached != null && cached.keySet().containsAll(digest.algorithms())) {
+                    return compare(cached, platform);
+                }
+            } catch (IOException e) {
+                platform.logger().warn("Failed to open {0} for hash calculation, assuming hash does not match",
+                    file.toString(), e);
+                return HashResult.UNMATCHED;
+            }
+        }
 
         try {
-            data = Files.readAllBytes(file);
+            digest.update(file);
+            digest.finish();
         } catch (IOException e) {
             platform.logger().warn("Failed to open {0} for hash calculation, assuming hash does not match",
                 file.toString(), e);
             return HashResult.UNMATCHED;
         }
 
-        StringBuilder hashBuilder = new StringBuilder();
-        for (Map.Entry<String, String> hashEntry : hashes.entrySet()) {
-            hashBuilder.setLength(0);
+        if (cache != null) {
+            cache.store(file, attributes, digest.results());
+        }
+        return checkDigest(digest, platform);
+    }
 
-            try {
-                MessageDigest digest = MessageDigest.getInstance(hashEntry.getKey());
+    /**
+     * Creates a digest for the configured hash algorithms which can be fed while downloading.
+     *
+     * @return the digest, or null if no hashes are configured
+     */
+    public MultiDigest createDigest(PlatformDelegate platform) {
+        if (hashes == null) {
+            return null;
+        }
+        return MultiDigest.create(hashes.keySet(), platform.logger());
+    }
 
-                byte[] hash = digest.digest(data);
-                hashBuilder.append(new BigInteger(1, hash).toString(16));
-                while (hashBuilder.length() < 32) {
-                    hashBuilder.insert(0, '0');
-                }
+    /**
+     * Verifies the hashes computed by a finished digest, so freshly downloaded files don't need to be read again.
+     */
+    public HashResult checkDigest(MultiDigest digest, PlatformDelegate platform) {
+        if (hashes == null) {
+            return HashResult.UNKNOWN;
+        }
+        return compare(digest.results(), platform);
+    }
 
-                if (!hashBuilder.toString().equals(hashEntry.getValue())) {
-                    return HashResult.UNMATCHED;
-                } else {
-                    return HashResult.MATCHED;
-                }
-            } catch (NoSuchAlgorithmException e) {
-                platform.logger().warn("Hash algorithm {0} not supported by JVM", hashEntry.getKey());
+    private HashResult compare(Map<String, String> actual, PlatformDelegate platform) {
+        boolean anyChecked = false;
+        for (Map.Entry<String, String> hashEntry : hashes.entrySet()) {
+            String actualHash = actual.get(hashEntry.getKey());
+            if (actualHash == null) {
+                continue;
             }
+            if (!actualHash.equalsIgnoreCase(hashEntry.getValue())) {
+                return HashResult.UNMATCHED;
+            }
+            anyChecked = true;
         }
 
-        platform.logger().warn("All given hash algorithms are not supported by the JVM");
-        return HashResult.UNKNOWN;
+        if (!anyChecked) {
+            platform.logger().warn("All given hash algorithms are not supported by the JVM");
+            return HashResult.UNKNOWN;
+        }
+        return HashResult.MATCHED;
     }
 
     public boolean shouldTryInstall(PlatformDelegate platform) {
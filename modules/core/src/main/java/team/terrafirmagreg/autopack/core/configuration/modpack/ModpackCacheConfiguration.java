@@ -0,0 +1,33 @@
+package team.terrafirmagreg.autopack.core.configuration.modpack;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.concurrent.TimeUnit;
+
+@Jacksonized
+@Builder
+public class ModpackCacheConfiguration {
+    private static final long DEFAULT_MAX_SIZE_MEGABYTES = 4096;
+    private static final int DEFAULT_MAX_AGE_DAYS = 90;
+
+    @JsonProperty
+    private final Long maxSizeMegabytes;
+
+    @JsonProperty
+    private final Integer maxAgeDays;
+
+    public static ModpackCacheConfiguration createDefault() {
+        return ModpackCacheConfiguration.builder().build();
+    }
+
+    public long maxSizeBytes() {
+        long megabytes = maxSizeMegabytes != null && maxSizeMegabytes >= 0 ? maxSizeMegabytes : DEFAULT_MAX_SIZE_MEGABYTES;
+        return megabytes * 1024 * 1024;
+    }
+
+    public long maxAgeMillis() {
+        return TimeUnit.DAYS.toMillis(maxAgeDays != null && maxAgeDays > 0 ? maxAgeDays : DEFAULT_MAX_AGE_DAYS);
+    }
+}
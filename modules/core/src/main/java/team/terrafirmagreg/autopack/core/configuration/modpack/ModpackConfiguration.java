@@ -40,6 +40,17 @@ public class ModpackConfiguration {
     @JsonProperty
     private final String uiTheme;
 
+    @Getter(AccessLevel.NONE)
+    @JsonProperty
+    private final ModpackNetworkConfiguration network;
+
+    @JsonProperty
+    private final String artifactStore;
+
+    @Getter(AccessLevel.NONE)
+    @JsonProperty
+    private final ModpackCacheConfiguration cache;
+
     public static ModpackConfiguration createDefault() {
         return ModpackConfiguration.builder()
                 .packName("Modpack Director")
@@ -54,4 +65,12 @@ public class ModpackConfiguration {
     public String uiTheme() {
         return uiTheme != null ? uiTheme : "material-dark";
     }
+
+    public ModpackNetworkConfiguration network() {
+        return network != null ? network : ModpackNetworkConfiguration.createDefault();
+    }
+
+    public ModpackCacheConfiguration cache() {
+        return cache != null ? cache : ModpackCacheConfiguration.createDefault();
+    }
 }
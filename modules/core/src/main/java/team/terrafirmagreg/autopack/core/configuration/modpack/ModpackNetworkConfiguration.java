@@ -0,0 +1,69 @@
+package team.terrafirmagreg.autopack.core.configuration.modpack;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.extern.jackson.Jacksonized;
+import team.terrafirmagreg.autopack.core.util.HedgingPolicy;
+import team.terrafirmagreg.autopack.core.util.RetryPolicy;
+
+import java.util.Collections;
+import java.util.Map;
+
+@Jacksonized
+@Builder
+public class ModpackNetworkConfiguration {
+    @JsonProperty
+    private final Integer maxConcurrentRequests;
+
+    @JsonProperty
+    private final Integer maxRequestsPerHost;
+
+    @JsonProperty
+    private final Map<String, Integer> hostLimits;
+
+    @JsonProperty
+    private final Boolean adaptive;
+
+    @JsonProperty
+    private final Long hedgeDelayMillis;
+
+    @JsonProperty
+    private final Integer maxRetries;
+
+    public static ModpackNetworkConfiguration createDefault() {
+        return ModpackNetworkConfiguration.builder().build();
+    }
+
+    public int maxConcurrentRequests() {
+        if (maxConcurrentRequests != null && maxConcurrentRequests > 0) {
+            return maxConcurrentRequests;
+        }
+        return Math.min(8, Math.max(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public int maxRequestsPerHost() {
+        return maxRequestsPerHost != null && maxRequestsPerHost > 0 ? maxRequestsPerHost : maxConcurrentRequests();
+    }
+
+    public Map<String, Integer> hostLimits() {
+        return hostLimits != null ? hostLimits : Collections.emptyMap();
+    }
+
+    public boolean adaptive() {
+        return adaptive == null || adaptive;
+    }
+
+    /**
+     * @return the maximum delay before a request is also sent to the next mirror, 0 to only fall back on failures
+     */
+    public long hedgeDelayMillis() {
+        return hedgeDelayMillis != null && hedgeDelayMillis >= 0 ? hedgeDelayMillis : HedgingPolicy.DEFAULT_MAX_DELAY_MILLIS;
+    }
+
+    /**
+     * @return how often a request failing with a transient error is sent again, 0 to never retry
+     */
+    public int maxRetries() {
+        return maxRetries != null && maxRetries >= 0 ? maxRetries : RetryPolicy.DEFAULT_MAX_RETRIES;
+    }
+}
@@ -0,0 +1,118 @@
+package team.terrafirmagreg.autopack.core.configuration.type;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import team.terrafirmagreg.autopack.core.configuration.ConfigurationController;
+import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
+import team.terrafirmagreg.autopack.core.util.WebClient;
+import team.terrafirmagreg.autopack.core.util.WebGetResponse;
+import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the file information of all CurseForge mods with the bulk files endpoint of each mirror, instead of
+ * one request per mod.
+ * <p>
+ * Mods missing from every bulk response are left untouched and query their information on their own later.
+ */
+public class CurseBatchResolver {
+    private static final int MAX_IDS_PER_REQUEST = 100;
+
+    private final List<String> apiUrls;
+    private final LoggerDelegate logger;
+
+    public CurseBatchResolver(LoggerDelegate logger) {
+        this(Arrays.asList(CurseRemoteMod.CURSE_TOOLS_API_URL, CurseRemoteMod.CF_PROXY_API_URL), logger);
+    }
+
+    public CurseBatchResolver(List<String> apiUrls, LoggerDelegate logger) {
+        this.apiUrls = apiUrls;
+        this.logger = logger;
+    }
+
+    public void resolve(List<RemoteMod> mods) {
+        Map<Integer, List<CurseRemoteMod>> pending = new LinkedHashMap<>();
+        for (RemoteMod mod : mods) {
+            if (mod instanceof CurseRemoteMod curseMod && curseMod.getInformation() == null) {
+                pending.computeIfAbsent(curseMod.getFileId(), id -> new ArrayList<>()).add(curseMod);
+            }
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        int total = pending.values().stream().mapToInt(List::size).sum();
+        for (String apiUrl : apiUrls) {
+            if (pending.isEmpty()) {
+                break;
+            }
+
+            Map<Integer, CurseRemoteMod.CurseAddonFileInformation> files;
+            try {
+                files = fetchAll(apiUrl, new ArrayList<>(pending.keySet()));
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Failed to resolve CurseForge files in bulk from {0}", apiUrl, e);
+                continue;
+            }
+
+            pending.entrySet().removeIf(entry -> {
+                CurseRemoteMod.CurseAddonFileInformation file = files.get(entry.getKey());
+                if (file == null) {
+                    return false;
+                }
+                entry.getValue().removeIf(mod -> {
+                    if (file.getModId() != mod.getAddonId()) {
+                        logger.warn("CurseForge file {0} does not belong to project {1}", mod.getFileId(), mod.getAddonId());
+                        return false;
+                    }
+                    mod.resolved(file);
+                    return true;
+                });
+                return entry.getValue().isEmpty();
+            });
+        }
+
+        int unresolved = pending.values().stream().mapToInt(List::size).sum();
+        logger.info("Resolved {0} of {1} CurseForge mods in bulk", total - unresolved, total);
+    }
+
+    private Map<Integer, CurseRemoteMod.CurseAddonFileInformation> fetchAll(String apiUrl, List<Integer> fileIds) throws IOException {
+        Map<Integer, CurseRemoteMod.CurseAddonFileInformation> files = new HashMap<>();
+        for (int start = 0; start < fileIds.size(); start += MAX_IDS_PER_REQUEST) {
+            List<Integer> chunk = fileIds.subList(start, Math.min(fileIds.size(), start + MAX_IDS_PER_REQUEST));
+            for (JsonNode node : fetch(apiUrl, chunk)) {
+                CurseRemoteMod.CurseAddonFileInformation file =
+                    ConfigurationController.OBJECT_MAPPER.convertValue(node, CurseRemoteMod.CurseAddonFileInformation.class);
+                files.put(file.getId(), file);
+            }
+        }
+        return files;
+    }
+
+    private JsonNode fetch(String apiUrl, List<Integer> fileIds) throws IOException {
+        ObjectMapper mapper = ConfigurationController.OBJECT_MAPPER;
+        ObjectNode request = mapper.createObjectNode();
+        ArrayNode ids = request.putArray("fileIds");
+        fileIds.forEach(ids::add);
+        URL url = new URL(apiUrl + "/mods/files");
+
+        try (WebGetResponse response = WebClient.post(url, "application/json", mapper.writeValueAsBytes(request))) {
+            JsonNode data = mapper.readTree(response.getInputStream()).get("data");
+            if (data == null || !data.isArray()) {
+                throw new IOException("Curse API response missing data for " + url);
+            }
+            return data;
+        }
+    }
+}
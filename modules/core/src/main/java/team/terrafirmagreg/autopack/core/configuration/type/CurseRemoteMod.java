@@ -14,7 +14,9 @@ import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
 import team.terrafirmagreg.autopack.core.configuration.RemoteModInformation;
 import team.terrafirmagreg.autopack.core.exception.InstallException;
 import team.terrafirmagreg.autopack.core.manage.ProgressCallback;
-import team.terrafirmagreg.autopack.core.util.IOOperation;
+import team.terrafirmagreg.autopack.core.util.FileDownloader;
+import team.terrafirmagreg.autopack.core.util.HedgingPolicy;
+import team.terrafirmagreg.autopack.core.util.MultiDigest;
 import team.terrafirmagreg.autopack.core.util.WebClient;
 import team.terrafirmagreg.autopack.core.util.WebGetResponse;
 
@@ -24,17 +26,17 @@ import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 
 @Jacksonized
 @SuperBuilder
 @Getter
 public class CurseRemoteMod extends RemoteMod {
-    private static final String CURSE_TOOLS_FILE_URL =
-        "https://api.curse.tools/v1/cf/mods/%s/files/%s";
-    private static final String CF_PROXY_FILE_URL =
-        "https://cfproxy.bmpm.workers.dev/v1/mods/%s/files/%s";
+    static final String CURSE_TOOLS_API_URL = "https://api.curse.tools/v1/cf";
+    static final String CF_PROXY_API_URL = "https://cfproxy.bmpm.workers.dev/v1";
+    private static final String CURSE_TOOLS_FILE_URL = CURSE_TOOLS_API_URL + "/mods/%s/files/%s";
+    private static final String CF_PROXY_FILE_URL = CF_PROXY_API_URL + "/mods/%s/files/%s";
 
     @JsonProperty(required = true)
     private final int addonId;
@@ -68,30 +70,70 @@ public class CurseRemoteMod extends RemoteMod {
     }
 
     @Override
-    public void performInstall(Path targetFile, ProgressCallback progressCallback, Director director, RemoteModInformation information) throws InstallException {
+    public void performInstall(Path targetFile, ProgressCallback progressCallback, Director director,
+                               RemoteModInformation information, MultiDigest digest) throws InstallException {
 
-        try (WebGetResponse response = WebClient.get(this.information.downloadUrl)) {
+        try {
             progressCallback.setSteps(1);
-            IOOperation.copy(response.getInputStream(), Files.newOutputStream(targetFile), progressCallback,
-                    response.getStreamSize());
+            long expectedLength = this.information.fileLength > 0 ? this.information.fileLength : -1;
+            FileDownloader.download(this.information.downloadUrl, targetFile, progressCallback, digest, expectedLength);
         } catch (IOException e) {
             throw new InstallException("Failed to download file", e);
         }
     }
 
+    @Override
+    public String remoteServiceUrl() {
+        return CURSE_TOOLS_API_URL;
+    }
+
     @Override
     public RemoteModInformation queryInformation() throws InstallException {
+        // May already have been filled in by the CurseBatchResolver or the information cache
+        if (information == null) {
+            information = queryFileInformation();
+        }
+
+        if (fileName != null) {
+            return new RemoteModInformation(fileName, fileName);
+        } else {
+            return new RemoteModInformation(information.displayName, information.fileName);
+        }
+    }
+
+    @Override
+    public String informationCacheKey() {
+        return "curseforge:" + addonId + ":" + fileId;
+    }
+
+    @Override
+    public JsonNode exportInformation() {
+        return information == null ? null : ConfigurationController.OBJECT_MAPPER.valueToTree(information);
+    }
+
+    @Override
+    public boolean importInformation(JsonNode node) {
+        CurseAddonFileInformation cached = ConfigurationController.OBJECT_MAPPER.convertValue(node, CurseAddonFileInformation.class);
+        if (cached == null || cached.id != fileId || cached.modId != addonId || cached.downloadUrl == null) {
+            return false;
+        }
+        information = cached;
+        return true;
+    }
+
+    void resolved(CurseAddonFileInformation information) {
+        this.information = information;
+    }
+
+    private CurseAddonFileInformation queryFileInformation() throws InstallException {
         try {
-            try {
-                information = fetchFileInformation(new URL(String.format(CURSE_TOOLS_FILE_URL, addonId, fileId)));
-            } catch (IOException primaryFailure) {
-                try {
-                    information = fetchFileInformation(new URL(String.format(CF_PROXY_FILE_URL, addonId, fileId)));
-                } catch (IOException fallbackFailure) {
-                    fallbackFailure.addSuppressed(primaryFailure);
-                    throw fallbackFailure;
-                }
-            }
+            URL primary = new URL(String.format(CURSE_TOOLS_FILE_URL, addonId, fileId));
+            URL fallback = new URL(String.format(CF_PROXY_FILE_URL, addonId, fileId));
+            // A slow mirror only costs the hedge delay instead of the full timeouts
+            return HedgingPolicy.global().race(Arrays.asList(
+                () -> fetchFileInformation(primary),
+                () -> fetchFileInformation(fallback)
+            ));
         } catch (MalformedURLException e) {
             throw new InstallException("Failed to create curse api url", e);
         } catch (JsonParseException e) {
@@ -101,12 +143,6 @@ public class CurseRemoteMod extends RemoteMod {
         } catch (IOException e) {
             throw new InstallException("Failed to open connection to curse", e);
         }
-
-        if (fileName != null) {
-            return new RemoteModInformation(fileName, fileName);
-        } else {
-            return new RemoteModInformation(information.displayName, information.fileName);
-        }
     }
 
     private static CurseAddonFileInformation fetchFileInformation(URL apiUrl) throws IOException {
@@ -124,6 +160,12 @@ public class CurseRemoteMod extends RemoteMod {
     @JsonIgnoreProperties(ignoreUnknown = true)
     @Getter
     public static class CurseAddonFileInformation {
+        @JsonProperty
+        private int id;
+
+        @JsonProperty
+        private int modId;
+
         @JsonProperty
         private String displayName;
 
@@ -133,6 +175,9 @@ public class CurseRemoteMod extends RemoteMod {
         @JsonProperty
         private URL downloadUrl;
 
+        @JsonProperty
+        private long fileLength;
+
         @JsonProperty
         private String[] gameVersions;
     }
@@ -0,0 +1,145 @@
+package team.terrafirmagreg.autopack.core.configuration.type;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import team.terrafirmagreg.autopack.core.configuration.ConfigurationController;
+import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
+import team.terrafirmagreg.autopack.core.util.RetryPolicy;
+import team.terrafirmagreg.autopack.core.util.WebClient;
+import team.terrafirmagreg.autopack.core.util.WebGetResponse;
+import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the information of all Modrinth mods with a few requests against the bulk versions and projects
+ * endpoints, instead of two requests per mod.
+ * <p>
+ * Mods which can't be resolved in bulk are left untouched and query their information on their own later.
+ */
+public class ModrinthBatchResolver {
+    private static final int MAX_IDS_PER_REQUEST = 100;
+    // The bulk endpoint only accepts version ids, version numbers have to be looked up one by one. Version numbers of
+    // the same shape are sent too, their versions are only used if they belong to the project of the mod
+    private static final Pattern VERSION_ID = Pattern.compile("[A-Za-z0-9]{8}");
+
+    private final String apiUrl;
+    private final LoggerDelegate logger;
+
+    public ModrinthBatchResolver(LoggerDelegate logger) {
+        this(ModrinthRemoteMod.MODRINTH_API_URL, logger);
+    }
+
+    public ModrinthBatchResolver(String apiUrl, LoggerDelegate logger) {
+        this.apiUrl = apiUrl;
+        this.logger = logger;
+    }
+
+    public void resolve(List<RemoteMod> mods) {
+        List<ModrinthRemoteMod> pending = new ArrayList<>();
+        Set<String> versionIds = new LinkedHashSet<>();
+        Set<String> projectIds = new LinkedHashSet<>();
+        for (RemoteMod mod : mods) {
+            if (mod instanceof ModrinthRemoteMod modrinthMod && !modrinthMod.isResolved()
+                && isVersionId(modrinthMod.fileId())) {
+                pending.add(modrinthMod);
+                versionIds.add(modrinthMod.fileId());
+                projectIds.add(modrinthMod.addonId());
+            }
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<String, ModrinthRemoteMod.ModrinthAddonFileInformation> versions = new HashMap<>();
+        Map<String, ModrinthRemoteMod.ModrinthProjectInformation> projects = new HashMap<>();
+        try {
+            for (JsonNode node : fetchAll("versions", versionIds)) {
+                ModrinthRemoteMod.ModrinthAddonFileInformation version =
+                    ConfigurationController.OBJECT_MAPPER.convertValue(node, ModrinthRemoteMod.ModrinthAddonFileInformation.class);
+                if (version.getId() != null) {
+                    versions.put(version.getId(), version);
+                }
+            }
+            for (JsonNode node : fetchAll("projects", projectIds)) {
+                ModrinthRemoteMod.ModrinthProjectInformation project =
+                    ConfigurationController.OBJECT_MAPPER.convertValue(node, ModrinthRemoteMod.ModrinthProjectInformation.class);
+                if (project.getId() != null) {
+                    projects.put(project.getId(), project);
+                }
+                if (project.getSlug() != null) {
+                    projects.put(project.getSlug().toLowerCase(Locale.ROOT), project);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Failed to resolve Modrinth mods in bulk, falling back to individual requests", e);
+            return;
+        }
+
+        int resolved = 0;
+        for (ModrinthRemoteMod mod : pending) {
+            ModrinthRemoteMod.ModrinthAddonFileInformation version = versions.get(mod.fileId());
+            ModrinthRemoteMod.ModrinthProjectInformation project = projects.get(mod.addonId());
+            if (project == null) {
+                project = projects.get(mod.addonId().toLowerCase(Locale.ROOT));
+            }
+            if (version == null || project == null) {
+                continue;
+            }
+            if (version.getProjectId() == null || !version.getProjectId().equals(project.getId())) {
+                logger.debug("Modrinth version {0} is not confirmed to belong to project {1}, querying it on its own",
+                    mod.fileId(), mod.addonId());
+                continue;
+            }
+            mod.resolved(version, project.getTitle());
+            resolved++;
+        }
+
+        logger.info("Resolved {0} of {1} Modrinth mods in bulk", resolved, pending.size());
+    }
+
+    static boolean isVersionId(String fileId) {
+        return VERSION_ID.matcher(fileId).matches();
+    }
+
+    private List<JsonNode> fetchAll(String endpoint, Set<String> ids) throws IOException {
+        List<String> idList = new ArrayList<>(ids);
+        List<JsonNode> results = new ArrayList<>();
+        for (int start = 0; start < idList.size(); start += MAX_IDS_PER_REQUEST) {
+            List<String> chunk = idList.subList(start, Math.min(idList.size(), start + MAX_IDS_PER_REQUEST));
+            results.addAll(fetch(endpoint, chunk));
+        }
+        return results;
+    }
+
+    private List<JsonNode> fetch(String endpoint, List<String> ids) throws IOException {
+        ObjectMapper mapper = ConfigurationController.OBJECT_MAPPER;
+        ArrayNode idArray = mapper.createArrayNode();
+        ids.forEach(idArray::add);
+        URL url = new URL(apiUrl + "/" + endpoint + "?ids=" + URLEncoder.encode(mapper.writeValueAsString(idArray), "UTF-8"));
+
+        // A failed bulk request falls back to querying every mod on its own, which retries instead
+        try (WebGetResponse response = WebClient.get(url, Collections.emptyMap(), RetryPolicy.NONE)) {
+            JsonNode root = mapper.readTree(response.getInputStream());
+            if (root == null || !root.isArray()) {
+                throw new IOException("Modrinth returned an unexpected response for " + url);
+            }
+            List<JsonNode> nodes = new ArrayList<>();
+            root.forEach(nodes::add);
+            return nodes;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.experimental.SuperBuilder;
@@ -14,7 +16,8 @@ import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
 import team.terrafirmagreg.autopack.core.configuration.RemoteModInformation;
 import team.terrafirmagreg.autopack.core.exception.InstallException;
 import team.terrafirmagreg.autopack.core.manage.ProgressCallback;
-import team.terrafirmagreg.autopack.core.util.IOOperation;
+import team.terrafirmagreg.autopack.core.util.FileDownloader;
+import team.terrafirmagreg.autopack.core.util.MultiDigest;
 import team.terrafirmagreg.autopack.core.util.WebClient;
 import team.terrafirmagreg.autopack.core.util.WebGetResponse;
 
@@ -24,15 +27,15 @@ import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 
 @Jacksonized
 @SuperBuilder
 public class ModrinthRemoteMod extends RemoteMod {
-    private static final String MODRINTH_API_VERSION_URL = "https://api.modrinth.com/v2/project/%s/version/%s";
-    private static final String MODRINTH_API_PROJECT_URL = "https://api.modrinth.com/v2/project/%s";
+    static final String MODRINTH_API_URL = "https://api.modrinth.com/v2";
+    private static final String MODRINTH_API_VERSION_URL = MODRINTH_API_URL + "/project/%s/version/%s";
+    private static final String MODRINTH_API_PROJECT_URL = MODRINTH_API_URL + "/project/%s";
 
     @JsonProperty(required = true)
     private final String addonId;
@@ -74,13 +77,36 @@ public class ModrinthRemoteMod extends RemoteMod {
         return String.format(MODRINTH_API_VERSION_URL, addonId, fileId);
     }
 
+    @Override
+    public String remoteServiceUrl() {
+        return MODRINTH_API_URL;
+    }
+
     @Override
     public RemoteModInformation queryInformation() throws InstallException {
-        queryTitle();
+        // Either may already have been filled in by the ModrinthBatchResolver or the information cache
+        if (projectTitle == null) {
+            queryTitle();
+        }
+        if (fileInformation == null) {
+            queryFileInformation();
+        }
+
+        ModrinthFile file = selectedFile();
+        if (file == null) {
+            throw new InstallException("No such file at index " + fileIndex);
+        }
+
+        String displayName = projectTitle != null ? projectTitle : (fileName != null ? fileName : file.filename);
+        String targetFilename = fileName != null ? fileName : file.filename;
+        return new RemoteModInformation(displayName, targetFilename);
+    }
+
+    private void queryFileInformation() throws InstallException {
         try {
             URL apiUrl = new URL(String.format(MODRINTH_API_VERSION_URL, addonId, fileId));
-            WebGetResponse response = WebClient.get(apiUrl);
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.getInputStream(), StandardCharsets.UTF_8))) {
+            try (WebGetResponse response = WebClient.get(apiUrl);
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(response.getInputStream(), StandardCharsets.UTF_8))) {
                 fileInformation = ConfigurationController.OBJECT_MAPPER.readValue(reader, ModrinthAddonFileInformation.class);
             }
         } catch (MalformedURLException e) {
@@ -92,22 +118,13 @@ public class ModrinthRemoteMod extends RemoteMod {
         } catch (IOException e) {
             throw new InstallException("Failed to open connection to Modrinth", e);
         }
-
-        ModrinthFile file = selectedFile();
-        if (file == null) {
-            throw new InstallException("No such file at index " + fileIndex);
-        }
-
-        String displayName = projectTitle != null ? projectTitle : (fileName != null ? fileName : file.filename);
-        String targetFilename = fileName != null ? fileName : file.filename;
-        return new RemoteModInformation(displayName, targetFilename);
     }
 
     private void queryTitle() throws InstallException {
         try {
             URL projectUrl = new URL(String.format(MODRINTH_API_PROJECT_URL, addonId));
-            WebGetResponse response = WebClient.get(projectUrl);
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.getInputStream(), StandardCharsets.UTF_8))) {
+            try (WebGetResponse response = WebClient.get(projectUrl);
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(response.getInputStream(), StandardCharsets.UTF_8))) {
                 ModrinthProjectInformation projectInformation =
                     ConfigurationController.OBJECT_MAPPER.readValue(reader, ModrinthProjectInformation.class);
                 projectTitle = projectInformation.title;
@@ -124,20 +141,66 @@ public class ModrinthRemoteMod extends RemoteMod {
     }
 
     @Override
-    public void performInstall(Path targetFile, ProgressCallback progressCallback, Director director, RemoteModInformation information) throws InstallException {
+    public void performInstall(Path targetFile, ProgressCallback progressCallback, Director director,
+                               RemoteModInformation information, MultiDigest digest) throws InstallException {
         ModrinthFile file = selectedFile();
         if (file == null || file.url == null) {
             throw new InstallException("No file available for download");
         }
-        try (WebGetResponse response = WebClient.get(file.url)) {
+        try {
             progressCallback.setSteps(1);
-            IOOperation.copy(response.getInputStream(), Files.newOutputStream(targetFile), progressCallback,
-                response.getStreamSize());
+            FileDownloader.download(file.url, targetFile, progressCallback, digest, file.size > 0 ? file.size : -1);
         } catch (IOException e) {
             throw new InstallException("Failed to download file", e);
         }
     }
 
+    @Override
+    public String informationCacheKey() {
+        // Version numbers can be reassigned by the author, only version ids are immutable
+        return ModrinthBatchResolver.isVersionId(fileId) ? "modrinth:" + addonId + ":" + fileId : null;
+    }
+
+    @Override
+    public JsonNode exportInformation() {
+        // A version number which merely looks like an id resolves to a version with another id
+        if (!isResolved() || !fileId.equals(fileInformation.id)) {
+            return null;
+        }
+        ObjectNode node = ConfigurationController.OBJECT_MAPPER.createObjectNode();
+        node.put("title", projectTitle);
+        node.set("version", ConfigurationController.OBJECT_MAPPER.valueToTree(fileInformation));
+        return node;
+    }
+
+    @Override
+    public boolean importInformation(JsonNode node) {
+        ModrinthAddonFileInformation cached =
+            ConfigurationController.OBJECT_MAPPER.convertValue(node.path("version"), ModrinthAddonFileInformation.class);
+        if (cached == null || !fileId.equals(cached.id) || !node.hasNonNull("title")) {
+            return false;
+        }
+        resolved(cached, node.get("title").asText());
+        return true;
+    }
+
+    String addonId() {
+        return addonId;
+    }
+
+    String fileId() {
+        return fileId;
+    }
+
+    boolean isResolved() {
+        return fileInformation != null && projectTitle != null;
+    }
+
+    void resolved(ModrinthAddonFileInformation fileInformation, String projectTitle) {
+        this.fileInformation = fileInformation;
+        this.projectTitle = projectTitle;
+    }
+
     private ModrinthFile selectedFile() {
         if (fileInformation == null || fileInformation.files == null || fileInformation.files.isEmpty()) {
             return null;
@@ -150,24 +213,39 @@ public class ModrinthRemoteMod extends RemoteMod {
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     @Getter
-    private static class ModrinthAddonFileInformation {
+    static class ModrinthAddonFileInformation {
+        @JsonProperty
+        private String id;
+
+        @JsonProperty("project_id")
+        private String projectId;
+
         @JsonProperty("files")
         private List<ModrinthFile> files;
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     @Getter
-    private static class ModrinthFile {
+    static class ModrinthFile {
         @JsonProperty
         private URL url;
 
         @JsonProperty
         private String filename;
+
+        @JsonProperty
+        private long size;
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     @Getter
-    private static class ModrinthProjectInformation {
+    static class ModrinthProjectInformation {
+        @JsonProperty
+        private String id;
+
+        @JsonProperty
+        private String slug;
+
         @JsonProperty
         private String title;
     }
@@ -10,13 +10,14 @@ import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
 import team.terrafirmagreg.autopack.core.configuration.RemoteModInformation;
 import team.terrafirmagreg.autopack.core.exception.InstallException;
 import team.terrafirmagreg.autopack.core.manage.ProgressCallback;
+import team.terrafirmagreg.autopack.core.util.FileDownloader;
 import team.terrafirmagreg.autopack.core.util.IOOperation;
+import team.terrafirmagreg.autopack.core.util.MultiDigest;
 import team.terrafirmagreg.autopack.core.util.WebClient;
 import team.terrafirmagreg.autopack.core.util.WebGetResponse;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -30,6 +31,8 @@ import java.util.zip.ZipInputStream;
 @SuperBuilder
 @Getter
 public class UrlRemoteMod extends RemoteMod {
+    private static final int DOWNLOAD_SEGMENTS = 4;
+
     @JsonProperty
     private final String fileName;
 
@@ -65,79 +68,78 @@ public class UrlRemoteMod extends RemoteMod {
 
     // TODO: Move URL following to query instead
     @Override
-    public void performInstall(Path targetFile, ProgressCallback progressCallback, Director director, RemoteModInformation information) throws InstallException {
-        byte[] data = null;
-
+    public void performInstall(Path targetFile, ProgressCallback progressCallback, Director director,
+                               RemoteModInformation information, MultiDigest digest) throws InstallException {
         progressCallback.setSteps(follows.length + 1);
 
-        URL urlToFollow = null;
-        for (int i = -1; i < follows.length; i++) {
-            if (i < 0) {
-                urlToFollow = url;
-            } else {
-                urlToFollow = resolveFollowUrl(urlToFollow, new String(data), follows[i]);
-            }
-
-            if (i + 1 == follows.length) {
-                progressCallback.message("Downloading final file");
-            } else {
-                progressCallback.message("Following redirect " + (i + 2) + " out of " + follows.length);
-            }
-
+        URL urlToFollow = url;
+        for (int i = 0; i < follows.length; i++) {
+            progressCallback.message("Following redirect " + (i + 1) + " out of " + follows.length);
             director.checkUrl(urlToFollow);
 
+            // Only the intermediate html pages are buffered, they are needed to find the next url
+            String html;
             try (WebGetResponse response = WebClient.get(urlToFollow)) {
                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
                 IOOperation.copy(response.getInputStream(), outputStream, progressCallback, response.getStreamSize());
-                data = outputStream.toByteArray();
+                html = new String(outputStream.toByteArray());
             } catch (IOException e) {
                 throw new InstallException("Failed to follow URLs to download file", e);
             }
 
+            urlToFollow = resolveFollowUrl(urlToFollow, html, follows[i]);
             progressCallback.step();
         }
 
+        progressCallback.message("Downloading final file");
+        director.checkUrl(urlToFollow);
+
+        // The final payload may be hundreds of megabytes, fetch it over several connections and resume it if interrupted
         try {
-            Files.write(targetFile, data);
-
-            if (this.getInstallationPolicy().extract()) {
-                try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(data))) {
-                    byte[] buffer = new byte[8192];
-                    ZipEntry zipEntry = zipInputStream.getNextEntry();
-                    while (zipEntry != null) {
-                        Path newFilePath = Paths.get(targetFile.getParent().toString(), zipEntry.getName());
-                        if (!zipEntry.isDirectory()) {
-                            if (Files.exists(newFilePath)) {
-                                Path disabledFilePath = newFilePath.resolveSibling(zipEntry.getName() + ".disabled-by-mod-director");
-                                if (Files.exists(disabledFilePath)) {
-                                    Files.delete(disabledFilePath);
-                                }
-                                Files.move(newFilePath, disabledFilePath);
-                            }
-                            progressCallback.message("Unzipping " + newFilePath.getFileName());
-                            try (FileOutputStream fileOutputStream = new FileOutputStream(newFilePath.toFile())) {
-                                int length;
-                                while ((length = zipInputStream.read(buffer)) > 0) {
-                                    fileOutputStream.write(buffer, 0, length);
-                                }
-                            }
-                        } else {
-                            Files.createDirectories(newFilePath);
-                        }
-                        zipEntry = zipInputStream.getNextEntry();
-                    }
-                }
+            FileDownloader.download(urlToFollow, targetFile, progressCallback, digest, -1, DOWNLOAD_SEGMENTS);
+        } catch (IOException e) {
+            throw new InstallException("Failed to download file", e);
+        }
+        progressCallback.step();
+
+        if (this.getInstallationPolicy().extract()) {
+            try {
+                extract(targetFile, progressCallback);
                 if (this.getInstallationPolicy().deleteAfterExtract()) {
                     Files.delete(targetFile);
                 }
+            } catch (IOException e) {
+                throw new InstallException("Failed to write file to disk", e);
             }
-        } catch (IOException e) {
-            throw new InstallException("Failed to write file to disk", e);
         }
 
         progressCallback.done();
     }
 
+    private static void extract(Path archive, ProgressCallback progressCallback) throws IOException {
+        try (ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(Files.newInputStream(archive)))) {
+            ZipEntry zipEntry = zipInputStream.getNextEntry();
+            while (zipEntry != null) {
+                Path newFilePath = Paths.get(archive.getParent().toString(), zipEntry.getName());
+                if (!zipEntry.isDirectory()) {
+                    if (Files.exists(newFilePath)) {
+                        Path disabledFilePath = newFilePath.resolveSibling(zipEntry.getName() + ".disabled-by-mod-director");
+                        if (Files.exists(disabledFilePath)) {
+                            Files.delete(disabledFilePath);
+                        }
+                        Files.move(newFilePath, disabledFilePath);
+                    }
+                    progressCallback.message("Unzipping " + newFilePath.getFileName());
+                    Files.createDirectories(newFilePath.getParent());
+                    Files.copy(zipInputStream, newFilePath);
+                } else {
+                    Files.createDirectories(newFilePath);
+                }
+                zipEntry = zipInputStream.getNextEntry();
+            }
+        }
+    }
+
     static URL resolveFollowUrl(URL currentUrl, String html, String followMarker) throws InstallException {
         int startIndex = html.indexOf(followMarker);
         if (startIndex < 0) {
@@ -168,6 +170,11 @@ public class UrlRemoteMod extends RemoteMod {
         }
     }
 
+    @Override
+    public String remoteServiceUrl() {
+        return url.toString();
+    }
+
     @Override
     public RemoteModInformation queryInformation() {
         if (fileName != null) {
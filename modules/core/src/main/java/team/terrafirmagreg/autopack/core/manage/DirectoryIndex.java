@@ -0,0 +1,158 @@
+package team.terrafirmagreg.autopack.core.manage;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Snapshot of the regular files in the directories touched by the pre-install checks. Every directory is listed
+ * once on first use, afterwards existence checks and listings are answered from memory, which matters on network
+ * mounted installations where every probe is a round trip.
+ * <p>
+ * Changes made through {@link #added}, {@link #deleted} and {@link #moved} are reflected, changes made by anything
+ * else are not, so an index must not outlive the phase it was created for. Directories which can't be listed fall
+ * back to asking the file system.
+ */
+final class DirectoryIndex {
+    private final Map<Path, Listing> listings = new ConcurrentHashMap<>();
+
+    boolean isRegularFile(Path file) {
+        Path normalized = file.toAbsolutePath().normalize();
+        Listing listing = listing(normalized.getParent());
+        if (listing == null) {
+            return Files.isRegularFile(normalized);
+        }
+        return listing.contains(normalized.getFileName().toString());
+    }
+
+    /**
+     * @return the regular files in the directory
+     */
+    List<Path> list(Path directory) throws IOException {
+        Path normalized = directory.toAbsolutePath().normalize();
+        Listing listing = listing(normalized);
+        if (listing == null) {
+            throw new IOException("Unable to list " + directory);
+        }
+        List<Path> files = new ArrayList<>();
+        for (String name : listing.names.values()) {
+            files.add(normalized.resolve(name));
+        }
+        return files;
+    }
+
+    void added(Path file) {
+        Path normalized = file.toAbsolutePath().normalize();
+        Listing listing = listings.get(normalized.getParent());
+        if (listing != null) {
+            listing.add(normalized.getFileName().toString());
+        }
+    }
+
+    void deleted(Path file) {
+        Path normalized = file.toAbsolutePath().normalize();
+        Listing listing = listings.get(normalized.getParent());
+        if (listing != null) {
+            listing.remove(normalized.getFileName().toString());
+        }
+    }
+
+    void moved(Path from, Path to) {
+        deleted(from);
+        added(to);
+    }
+
+    private Listing listing(Path directory) {
+        if (directory == null) {
+            return null;
+        }
+        Listing listing = listings.computeIfAbsent(directory, Listing::read);
+        return listing.failed ? null : listing;
+    }
+
+    private static final class Listing {
+        // Keyed by the name as the file system compares it, valued by the name as stored
+        private final Map<String, String> names = new ConcurrentHashMap<>();
+        private boolean caseInsensitive;
+        private boolean failed;
+
+        private static Listing read(Path directory) {
+            Listing listing = new Listing();
+            List<String> found = new ArrayList<>();
+            try {
+                Files.walkFileTree(directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                            // The directory itself and subdirectories show up here as well with a depth of 1
+                            if (attributes.isRegularFile()) {
+                                found.add(file.getFileName().toString());
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                            if (file.equals(directory)) {
+                                throw e;
+                            }
+                            // Broken links are not regular files
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+            } catch (NoSuchFileException e) {
+                return listing;
+            } catch (IOException | SecurityException e) {
+                listing.failed = true;
+                return listing;
+            }
+
+            listing.caseInsensitive = isCaseInsensitive(directory, found);
+            for (String name : found) {
+                listing.add(name);
+            }
+            return listing;
+        }
+
+        /**
+         * Windows and macOS find files regardless of case, which lookups in the snapshot have to match.
+         */
+        private static boolean isCaseInsensitive(Path directory, List<String> names) {
+            for (String name : names) {
+                String swapped = name.toUpperCase(Locale.ROOT).equals(name)
+                    ? name.toLowerCase(Locale.ROOT) : name.toUpperCase(Locale.ROOT);
+                if (!swapped.equals(name)) {
+                    return Files.exists(directory.resolve(swapped)) && !names.contains(swapped);
+                }
+            }
+            return false;
+        }
+
+        private String key(String name) {
+            return caseInsensitive ? name.toLowerCase(Locale.ROOT) : name;
+        }
+
+        private boolean contains(String name) {
+            return names.containsKey(key(name));
+        }
+
+        private void add(String name) {
+            names.put(key(name), name);
+        }
+
+        private void remove(String name) {
+            names.remove(key(name));
+        }
+    }
+}
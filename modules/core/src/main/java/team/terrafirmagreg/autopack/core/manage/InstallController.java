@@ -1,28 +1,33 @@
 package team.terrafirmagreg.autopack.core.manage;
 
 import team.terrafirmagreg.autopack.Director;
+import team.terrafirmagreg.autopack.core.cache.ArtifactStore;
+import team.terrafirmagreg.autopack.core.cache.WarmStartManifest;
 import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
 import team.terrafirmagreg.autopack.core.configuration.RemoteModInformation;
+import team.terrafirmagreg.autopack.core.configuration.RemoteModMetadata;
 import team.terrafirmagreg.autopack.core.configuration.modpack.ModpackConfiguration;
 import team.terrafirmagreg.autopack.core.exception.InstallException;
 import team.terrafirmagreg.autopack.core.manage.install.InstallableMod;
 import team.terrafirmagreg.autopack.core.manage.install.InstalledMod;
 import team.terrafirmagreg.autopack.core.util.HashResult;
+import team.terrafirmagreg.autopack.core.util.MultiDigest;
 import team.terrafirmagreg.autopack.core.util.NetworkExceptions;
 
 import java.io.IOException;
-import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class InstallController {
 
@@ -43,11 +48,34 @@ public class InstallController {
         List<InstallableMod> freshMods,
         List<InstallableMod> reinstallMods,
         BiFunction<String, String, ProgressCallback> callbackFactory
+    ) {
+        return createPreInstallTasks(allMods, excludedMods, freshMods, reinstallMods, callbackFactory, null);
+    }
+
+    /**
+     * @param qualifiedListener notified as soon as a mod is known to be installed regardless of the user's
+     *                          selection, so the download can start before all checks completed, may be null. Mods
+     *                          whose file a supersede pattern matches are only passed on once superseded files
+     *                          were removed, so that removal never races their installation.
+     */
+    public List<Callable<Void>> createPreInstallTasks(
+        List<RemoteMod> allMods,
+        List<RemoteMod> excludedMods,
+        List<InstallableMod> freshMods,
+        List<InstallableMod> reinstallMods,
+        BiFunction<String, String, ProgressCallback> callbackFactory,
+        Consumer<InstallableMod> qualifiedListener
     ) {
         List<Callable<Void>> preInstallTasks = new ArrayList<>();
+        // Shared by all checks of this phase, so every mod folder is listed once instead of probed per mod
+        DirectoryIndex index = new DirectoryIndex();
+        SupersedeIndex supersedes = new SupersedeIndex(allMods, FileSystems.getDefault(), director.logger());
+        // The last check to complete removes the superseded files of all mods in one pass per directory
+        AtomicInteger pendingChecks = new AtomicInteger(allMods.size());
+        List<InstallableMod> heldBack = Collections.synchronizedList(new ArrayList<>());
 
         for (RemoteMod mod : allMods) {
-            preInstallTasks.add(() -> {
+            Callable<Void> check = () -> {
                 ProgressCallback callback = callbackFactory.apply(mod.offlineName(), "Checking installation status");
 
                 callback.indeterminate(true);
@@ -74,16 +102,17 @@ public class InstallController {
                         callback.done();
                         return null;
                     }
+                    watchTarget(offlineTarget);
 
                     Path disabledFile = computeDisabledPath(offlineTarget);
-                    if (Files.isRegularFile(disabledFile) || !isVersionCompliant(mod)) {
+                    if (index.isRegularFile(disabledFile) || !isVersionCompliant(mod)) {
                         excludedMods.add(mod);
                         callback.done();
                         return null;
                     }
 
                     if (!mod.getInstallationPolicy().downloadAlways()
-                        && canSkipExistingInstall(mod, offlineTarget)) {
+                        && canSkipExistingInstall(mod, offlineTarget, index)) {
                         director.logger().debug(
                             "Skipping remote query for {0}; local file exists at {1}",
                             mod.offlineName(),
@@ -102,6 +131,11 @@ public class InstallController {
                 try {
                     information = mod.queryInformation();
                 } catch (InstallException e) {
+                    if (NetworkExceptions.isOffline(e)) {
+                        director.skippedOffline(mod);
+                        callback.done();
+                        return null;
+                    }
                     String reason = NetworkExceptions.isConnectivityError(e)
                         ? " (" + NetworkExceptions.describe(e) + ")" : "";
                     director.logger().error("Failed to query information for {0} from {1}}",
@@ -121,24 +155,28 @@ public class InstallController {
                     callback.done();
                     return null;
                 }
+                watchTarget(targetFile);
 
                 Path disabledFile = computeDisabledPath(targetFile);
 
-                if (Files.isRegularFile(disabledFile) || !isVersionCompliant(mod)) {
+                if (index.isRegularFile(disabledFile) || !isVersionCompliant(mod)) {
                     excludedMods.add(mod);
                     callback.done();
                     return null;
                 }
 
                 InstallableMod installableMod = new InstallableMod(mod, information, targetFile);
+                // Reinstalls and mods without an optional key are installed no matter what gets selected
+                boolean qualified = false;
 
                 var bansoukouPatchedFile = computeBansoukouPatchedPath(targetFile);
                 var bansoukouDisabledFile = computeBansoukouDisabledPath(targetFile);
 
-                if (mod.getMetadata() != null && (Files.isRegularFile(targetFile) || (Files.isRegularFile(bansoukouPatchedFile)
-                    && Files.isRegularFile(bansoukouDisabledFile)))) {
-                    HashResult hashResult = mod.getMetadata().checkHashes(Files.isRegularFile(targetFile) ? targetFile
-                        : bansoukouDisabledFile, director.platform());
+                boolean targetExists = index.isRegularFile(targetFile);
+                if (mod.getMetadata() != null && (targetExists || (index.isRegularFile(bansoukouPatchedFile)
+                    && index.isRegularFile(bansoukouDisabledFile)))) {
+                    HashResult hashResult = mod.getMetadata().checkHashes(targetExists ? targetFile
+                        : bansoukouDisabledFile, director.platform(), director.getHashCache());
 
                     switch (hashResult) {
                         case UNKNOWN:
@@ -162,69 +200,113 @@ public class InstallController {
                     }
                     Files.deleteIfExists(bansoukouPatchedFile);
                     Files.deleteIfExists(bansoukouDisabledFile);
+                    index.deleted(bansoukouPatchedFile);
+                    index.deleted(bansoukouDisabledFile);
                     reinstallMods.add(installableMod);
+                    qualified = true;
 
-                } else if (mod.getInstallationPolicy().downloadAlways() && Files.isRegularFile(targetFile)) {
+                } else if (mod.getInstallationPolicy().downloadAlways() && targetExists) {
                     director.logger().info("Force downloading file {0} as download always option is set.",
                         targetFile.toString());
                     reinstallMods.add(installableMod);
+                    qualified = true;
 
-                } else if (Files.isRegularFile(targetFile)) {
+                } else if (targetExists) {
                     director.logger().debug("File {0} exists and no metadata given, skipping download.",
                         targetFile.toString());
                     excludedMods.add(mod);
 
                 } else {
                     freshMods.add(installableMod);
+                    qualified = mod.getInstallationPolicy().optionalKey() == null;
                 }
 
                 if (!excludedMods.contains(mod)) {
-                    List<String> patterns = mod.getInstallationPolicy().allSupersedePatterns();
-                    if (!patterns.isEmpty()) {
-                        Path targetDir = targetFile.getParent();
-                        FileSystem fs = targetDir.getFileSystem();
-                        List<PathMatcher> matchers = patterns.stream()
-                            .map(p -> fs.getPathMatcher("glob:" + p))
-                            .collect(Collectors.toList());
-                        try (Stream<Path> entries = Files.list(targetDir)) {
-                            entries
-                                .filter(Files::isRegularFile)
-                                .filter(p -> !p.equals(targetFile))
-                                .filter(p -> matchers.stream().anyMatch(m -> m.matches(p.getFileName())))
-                                .forEach(old -> {
-                                    try {
-                                        if (mod.getInstallationPolicy().deleteSuperseded()) {
-                                            Files.delete(old);
-                                            director.logger().info("Deleted superseded file {0}", old);
-                                        } else {
-                                            Path disabled = old.resolveSibling(old.getFileName() + ".disabled-by-mod-director");
-                                            Files.deleteIfExists(disabled);
-                                            Files.move(old, disabled);
-                                            director.logger().info("Disabled superseded file {0}", old);
-                                        }
-                                    } catch (IOException e) {
-                                        director.logger().warn("Failed to process superseded file {0}", old, e);
-                                    }
-                                });
-                        } catch (IOException e) {
-                            director.logger().warn("Failed to scan directory for superseded files {0}", targetDir, e);
-                        }
-                    }
+                    supersedes.claim(mod, targetFile);
                 }
 
                 callback.done();
+                if (qualified && qualifiedListener != null) {
+                    if (supersedes.mayMatch(targetFile)) {
+                        heldBack.add(installableMod);
+                    } else {
+                        qualifiedListener.accept(installableMod);
+                    }
+                }
                 return null;
+            };
+            preInstallTasks.add(() -> {
+                try {
+                    return check.call();
+                } finally {
+                    if (pendingChecks.decrementAndGet() == 0) {
+                        try {
+                            removeSupersededFiles(supersedes, index);
+                        } finally {
+                            if (qualifiedListener != null) {
+                                heldBack.forEach(qualifiedListener);
+                            }
+                        }
+                    }
+                }
             });
         }
 
         return preInstallTasks;
     }
 
-    private boolean canSkipExistingInstall(RemoteMod mod, Path targetFile) {
+    /**
+     * Makes every file the checks of a mod look at part of the warm start fingerprint.
+     */
+    private void watchTarget(Path targetFile) {
+        WarmStartManifest warmStart = director.getWarmStart();
+        warmStart.watch(targetFile);
+        warmStart.watch(computeDisabledPath(targetFile));
+        warmStart.watch(computeBansoukouPatchedPath(targetFile));
+        warmStart.watch(computeBansoukouDisabledPath(targetFile));
+    }
+
+    private void removeSupersededFiles(SupersedeIndex supersedes, DirectoryIndex index) {
+        for (Path directory : supersedes.directories()) {
+            director.getWarmStart().watchDirectory(directory);
+            List<Path> files;
+            try {
+                files = index.list(directory);
+            } catch (IOException e) {
+                director.logger().warn("Failed to scan directory for superseded files {0}", directory, e);
+                continue;
+            }
+
+            for (Path old : files) {
+                RemoteMod mod = supersedes.supersedingMod(old);
+                if (mod == null) {
+                    continue;
+                }
+                try {
+                    if (mod.getInstallationPolicy().deleteSuperseded()) {
+                        Files.delete(old);
+                        index.deleted(old);
+                        director.logger().info("Deleted superseded file {0}", old);
+                    } else {
+                        Path disabled = old.resolveSibling(old.getFileName() + ".disabled-by-mod-director");
+                        Files.deleteIfExists(disabled);
+                        Files.move(old, disabled);
+                        index.moved(old, disabled);
+                        director.logger().info("Disabled superseded file {0}", old);
+                    }
+                } catch (IOException e) {
+                    director.logger().warn("Failed to process superseded file {0}", old, e);
+                }
+            }
+        }
+    }
+
+    private boolean canSkipExistingInstall(RemoteMod mod, Path targetFile, DirectoryIndex index) {
         Path bansoukouPatchedFile = computeBansoukouPatchedPath(targetFile);
         Path bansoukouDisabledFile = computeBansoukouDisabledPath(targetFile);
-        boolean exists = Files.isRegularFile(targetFile)
-            || (Files.isRegularFile(bansoukouPatchedFile) && Files.isRegularFile(bansoukouDisabledFile));
+        boolean targetExists = index.isRegularFile(targetFile);
+        boolean exists = targetExists
+            || (index.isRegularFile(bansoukouPatchedFile) && index.isRegularFile(bansoukouDisabledFile));
         if (!exists) {
             return false;
         }
@@ -232,8 +314,9 @@ public class InstallController {
             return true;
         }
         HashResult hashResult = mod.getMetadata().checkHashes(
-            Files.isRegularFile(targetFile) ? targetFile : bansoukouDisabledFile,
-            director.platform()
+            targetExists ? targetFile : bansoukouDisabledFile,
+            director.platform(),
+            director.getHashCache()
         );
         return hashResult == HashResult.UNKNOWN || hashResult == HashResult.MATCHED;
     }
@@ -320,15 +403,19 @@ public class InstallController {
         List<Callable<Void>> installTasks = new ArrayList<>();
 
         for (InstallableMod mod : mods) {
-            installTasks.add(() -> {
-                handle(mod, callbackFactory.apply(mod.remoteInformation().targetFilename(), "Installing"));
-                return null;
-            });
+            installTasks.add(createInstallTask(mod, callbackFactory));
         }
 
         return installTasks;
     }
 
+    public Callable<Void> createInstallTask(InstallableMod mod, BiFunction<String, String, ProgressCallback> callbackFactory) {
+        return () -> {
+            handle(mod, callbackFactory.apply(mod.remoteInformation().targetFilename(), "Installing"));
+            return null;
+        };
+    }
+
     private void handle(InstallableMod mod, ProgressCallback callback) {
         try {
             RemoteMod remoteMod = mod.remoteMod();
@@ -346,9 +433,25 @@ public class InstallController {
                 return;
             }
 
+            RemoteModMetadata metadata = remoteMod.getMetadata();
+            // Extracted files don't stay in place, so there is nothing to share
+            ArtifactStore artifactStore = metadata != null && !remoteMod.getInstallationPolicy().extract()
+                ? director.getArtifactStore() : null;
+            if (artifactStore != null && installFromStore(artifactStore, metadata, targetFile)) {
+                director.logger().info("Installed mod file {0} from the artifact store", targetFile.toString());
+                director.getInstalledMods().add(new InstalledMod(targetFile, remoteMod.getOptions(), remoteMod.forceInject()));
+                return;
+            }
+
+            MultiDigest digest = metadata != null ? metadata.createDigest(director.platform()) : null;
+
             try {
-                mod.performInstall(director, callback);
+                mod.performInstall(director, callback, digest);
             } catch (InstallException e) {
+                if (NetworkExceptions.isOffline(e)) {
+                    director.skippedOffline(remoteMod);
+                    return;
+                }
                 String reason = NetworkExceptions.isConnectivityError(e)
                     ? " (" + NetworkExceptions.describe(e) + ")" : "";
                 director.logger().log(downloadSeverityLevelFor(remoteMod), "Failed to install mod {0}", remoteMod.offlineName(), e);
@@ -357,11 +460,15 @@ public class InstallController {
                 return;
             }
 
-            if (remoteMod.getMetadata() != null && remoteMod.getMetadata().checkHashes(targetFile, director.platform()) == HashResult.UNMATCHED) {
+            HashResult hashResult = metadata != null ? verifyDownload(metadata, digest, targetFile) : HashResult.UNKNOWN;
+            if (hashResult == HashResult.UNMATCHED) {
                 director.logger().error("Mod did not match hash after download, aborting!");
                 director.addError(new InstallError(Level.SEVERE,
                     "Mod did not match hash after download"));
             } else {
+                if (artifactStore != null && hashResult == HashResult.MATCHED) {
+                    artifactStore.store(targetFile, metadata.hashes());
+                }
                 if (remoteMod.getInstallationPolicy().extract()) {
                     director.logger().info("Extracted mod file {0}", targetFile.toString());
                 } else {
@@ -373,4 +480,43 @@ public class InstallController {
             callback.done();
         }
     }
+
+    private boolean installFromStore(ArtifactStore artifactStore, RemoteModMetadata metadata, Path targetFile) {
+        for (Path candidate : artifactStore.candidates(metadata.hashes())) {
+            // The cache cleanup may run concurrently, the lease keeps the file until it is installed
+            try (ArtifactStore.Lease ignored = artifactStore.lease(candidate)) {
+                if (!Files.isRegularFile(candidate)) {
+                    continue;
+                }
+                // The hash cache makes this a single stat for files this instance already verified
+                if (metadata.checkHashes(candidate, director.platform(), director.getHashCache()) != HashResult.MATCHED) {
+                    director.logger().warn("Ignoring {0} in the artifact store as its hashes do not match", candidate);
+                    continue;
+                }
+                artifactStore.install(candidate, targetFile);
+                return true;
+            } catch (IOException e) {
+                director.logger().warn("Failed to install {0} from the artifact store", targetFile, e);
+            }
+        }
+        return false;
+    }
+
+    private HashResult verifyDownload(RemoteModMetadata metadata, MultiDigest digest, Path targetFile) {
+        if (digest == null || !digest.isFinished()) {
+            // The backend did not stream through the digest, fall back to reading the file
+            return metadata.checkHashes(targetFile, director.platform(), director.getHashCache());
+        }
+
+        HashResult result = metadata.checkDigest(digest, director.platform());
+        if (result == HashResult.MATCHED && Files.isRegularFile(targetFile)) {
+            try {
+                director.getHashCache().store(targetFile, Files.readAttributes(targetFile, BasicFileAttributes.class),
+                    digest.results());
+            } catch (IOException e) {
+                director.logger().debug("Unable to record hashes of {0} in the hash cache", targetFile, e);
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,157 @@
+package team.terrafirmagreg.autopack.core.manage;
+
+import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
+import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The supersede globs of every mod in the pack, compiled once per pre-install phase. Patterns are indexed in a trie
+ * by their literal prefix, so a file name is only tested against the globs which can match it at all, and every
+ * directory is scanned once for all mods installing into it instead of once per mod.
+ * <p>
+ * A pattern only applies once its mod has been {@link #claim claimed} for installation, and only to the directory
+ * the mod is installed into.
+ */
+final class SupersedeIndex {
+    private final Node root = new Node();
+    private final Map<RemoteMod, List<Entry>> entriesByMod = new IdentityHashMap<>();
+    private final Set<Path> directories = new LinkedHashSet<>();
+
+    SupersedeIndex(List<RemoteMod> mods, FileSystem fileSystem, LoggerDelegate logger) {
+        int order = 0;
+        for (RemoteMod mod : mods) {
+            for (String pattern : mod.getInstallationPolicy().allSupersedePatterns()) {
+                PathMatcher matcher;
+                try {
+                    matcher = fileSystem.getPathMatcher("glob:" + pattern);
+                } catch (PatternSyntaxException e) {
+                    logger.warn("Ignoring invalid supersede pattern {0} of {1}", pattern, mod.offlineName(), e);
+                    continue;
+                }
+                Entry entry = new Entry(mod, matcher, order++);
+                entriesByMod.computeIfAbsent(mod, m -> new ArrayList<>()).add(entry);
+                root.insert(literalPrefix(pattern)).entries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Activates the patterns of a mod which is going to be installed to the target file.
+     */
+    void claim(RemoteMod mod, Path targetFile) {
+        List<Entry> entries = entriesByMod.get(mod);
+        if (entries == null) {
+            return;
+        }
+        for (Entry entry : entries) {
+            entry.target = targetFile;
+        }
+        synchronized (directories) {
+            directories.add(targetFile.getParent());
+        }
+    }
+
+    /**
+     * @return the directories mods with supersede patterns are installed into
+     */
+    List<Path> directories() {
+        synchronized (directories) {
+            return new ArrayList<>(directories);
+        }
+    }
+
+    /**
+     * @return whether a pattern of any mod matches the name of the file, claimed or not and in any directory
+     */
+    boolean mayMatch(Path file) {
+        Path name = file.getFileName();
+        String key = name.toString().toLowerCase(Locale.ROOT);
+
+        Node node = root;
+        int depth = 0;
+        while (node != null) {
+            for (Entry entry : node.entries) {
+                if (entry.matcher.matches(name)) {
+                    return true;
+                }
+            }
+            node = depth < key.length() ? node.children.get(key.charAt(depth++)) : null;
+        }
+        return false;
+    }
+
+    /**
+     * @return the mod superseding the file, the first one in pack order if several do, or null
+     */
+    RemoteMod supersedingMod(Path file) {
+        Path name = file.getFileName();
+        String key = name.toString().toLowerCase(Locale.ROOT);
+        Entry match = null;
+
+        Node node = root;
+        int depth = 0;
+        while (node != null) {
+            for (Entry entry : node.entries) {
+                Path target = entry.target;
+                if ((match == null || entry.order < match.order)
+                    && target != null
+                    && !target.equals(file)
+                    && target.getParent().equals(file.getParent())
+                    && entry.matcher.matches(name)) {
+                    match = entry;
+                }
+            }
+            node = depth < key.length() ? node.children.get(key.charAt(depth++)) : null;
+        }
+        return match == null ? null : match.mod;
+    }
+
+    /**
+     * Lower cased, since the trie only narrows down the candidates and globs ignore case on some file systems.
+     */
+    private static String literalPrefix(String pattern) {
+        int end = 0;
+        while (end < pattern.length() && "*?[{\\".indexOf(pattern.charAt(end)) < 0) {
+            end++;
+        }
+        return pattern.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private final List<Entry> entries = new ArrayList<>();
+
+        private Node insert(String prefix) {
+            Node node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node());
+            }
+            return node;
+        }
+    }
+
+    private static final class Entry {
+        private final RemoteMod mod;
+        private final PathMatcher matcher;
+        private final int order;
+        private volatile Path target;
+
+        private Entry(RemoteMod mod, PathMatcher matcher, int order) {
+            this.mod = mod;
+            this.matcher = matcher;
+            this.order = order;
+        }
+    }
+}
@@ -6,13 +6,14 @@ import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
 import team.terrafirmagreg.autopack.core.configuration.RemoteModInformation;
 import team.terrafirmagreg.autopack.core.exception.InstallException;
 import team.terrafirmagreg.autopack.core.manage.ProgressCallback;
+import team.terrafirmagreg.autopack.core.util.MultiDigest;
 
 import java.nio.file.Path;
 
 @Desugar
 public record InstallableMod(RemoteMod remoteMod, RemoteModInformation remoteInformation, Path targetFile) {
 
-    public void performInstall(Director director, ProgressCallback callback) throws InstallException {
-        remoteMod.performInstall(targetFile, callback, director, remoteInformation);
+    public void performInstall(Director director, ProgressCallback callback, MultiDigest digest) throws InstallException {
+        remoteMod.performInstall(targetFile, callback, director, remoteInformation, digest);
     }
 }
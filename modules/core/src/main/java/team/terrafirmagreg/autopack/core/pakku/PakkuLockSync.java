@@ -5,16 +5,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import team.terrafirmagreg.autopack.core.configuration.ConfigurationController;
 import team.terrafirmagreg.autopack.core.manage.ProgressCallback;
-import team.terrafirmagreg.autopack.core.util.IOOperation;
-import team.terrafirmagreg.autopack.core.util.WebClient;
-import team.terrafirmagreg.autopack.core.util.WebGetResponse;
+import team.terrafirmagreg.autopack.core.util.FileDownloader;
 import team.terrafirmagreg.autopack.logging.LoggerDelegate;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 
 public final class PakkuLockSync {
     private PakkuLockSync() {
@@ -82,18 +79,15 @@ public final class PakkuLockSync {
 
         for (PakkuMissingMod missing : diff.getMissingMods()) {
             Path target = modsDirectory.resolve(missing.getFileName());
-            Path temp = modsDirectory.resolve(missing.getFileName() + ".tmp");
             progress.message(missing.getFileName());
             progress.title(missing.getFileName());
 
-            try (WebGetResponse response = WebClient.get(missing.getDownloadUrl())) {
-                IOOperation.copy(response.getInputStream(), Files.newOutputStream(temp), progress, response.getStreamSize());
+            try {
+                FileDownloader.download(missing.getDownloadUrl(), target, progress, null, -1);
             } catch (IOException e) {
-                Files.deleteIfExists(temp);
                 throw new IOException("Failed to download " + missing.getFileName() + " from pakku-lock", e);
             }
 
-            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
             logger.info("Downloaded missing mod from pakku-lock: {0}", missing.getFileName());
             progress.step();
         }
@@ -0,0 +1,91 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops sending requests to a server after several connections to it failed in a row, so the remaining requests of
+ * an install fail right away instead of each waiting for its own connect timeout.
+ * <p>
+ * An open breaker lets a single probe request through once the open time passed. If it reaches the server the breaker
+ * closes again, otherwise it stays open for another period. Servers are told apart by host and port.
+ */
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final long DEFAULT_OPEN_MILLIS = 30_000;
+    private static volatile CircuitBreaker global = new CircuitBreaker(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Map<String, Circuit> circuits = new HashMap<>();
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    public static CircuitBreaker global() {
+        return global;
+    }
+
+    public static void setGlobal(CircuitBreaker breaker) {
+        global = breaker;
+    }
+
+    /**
+     * @throws CircuitOpenException if requests to the server of the url are currently skipped
+     */
+    public synchronized void check(URL url) throws CircuitOpenException {
+        Circuit circuit = circuits.get(key(url));
+        if (circuit == null || !circuit.open) {
+            return;
+        }
+
+        long remaining = circuit.openedAt + openNanos - System.nanoTime();
+        if (remaining > 0 || circuit.probing) {
+            throw new CircuitOpenException(url.getHost(), circuit.failures,
+                TimeUnit.NANOSECONDS.toMillis(Math.max(0, remaining)));
+        }
+        // Let this request find out whether the server is back
+        circuit.probing = true;
+    }
+
+    /**
+     * Gives back the probe {@link #check} may have let through if the request was not sent after all or ended without
+     * telling whether the server answers, such as when it was cancelled. Neither counts as success or failure.
+     */
+    public synchronized void abandoned(URL url) {
+        Circuit circuit = circuits.get(key(url));
+        if (circuit != null) {
+            circuit.probing = false;
+        }
+    }
+
+    public synchronized void succeeded(URL url) {
+        circuits.remove(key(url));
+    }
+
+    public synchronized void failed(URL url) {
+        Circuit circuit = circuits.computeIfAbsent(key(url), k -> new Circuit());
+        circuit.failures++;
+        if (circuit.probing || circuit.failures >= failureThreshold) {
+            circuit.open = true;
+            circuit.openedAt = System.nanoTime();
+            circuit.probing = false;
+        }
+    }
+
+    private static String key(URL url) {
+        return url.getHost().toLowerCase(Locale.ROOT) + ":" + (url.getPort() != -1 ? url.getPort() : url.getDefaultPort());
+    }
+
+    private static final class Circuit {
+        private int failures;
+        private boolean open;
+        private long openedAt;
+        private boolean probing;
+    }
+}
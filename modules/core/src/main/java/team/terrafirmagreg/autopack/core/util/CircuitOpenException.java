@@ -0,0 +1,20 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import java.net.ConnectException;
+
+/**
+ * Thrown instead of connecting to a server the {@link CircuitBreaker} currently skips.
+ */
+public class CircuitOpenException extends ConnectException {
+    private final String host;
+
+    public CircuitOpenException(String host, int failures, long retryInMillis) {
+        super("Skipping " + host + " after " + failures + " failed connections, trying again in "
+            + Math.max(1, (retryInMillis + 999) / 1000) + "s");
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
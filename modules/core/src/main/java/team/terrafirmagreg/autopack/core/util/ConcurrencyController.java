@@ -0,0 +1,198 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the amount of in-flight requests made through the {@link WebClient}, both in total and per host.
+ * <p>
+ * When adaptive, every host starts with a small window which grows by one request whenever a full window of
+ * requests completed with a higher throughput than the window before, and is halved when a request fails or the
+ * server asks to slow down. The configured per-host cap is never exceeded.
+ * <p>
+ * Waiting uses a lock instead of monitors, so virtual threads blocked on a slot don't pin their carrier thread.
+ */
+public class ConcurrencyController {
+    private static final int INITIAL_ADAPTIVE_LIMIT = 4;
+    private static final double THROUGHPUT_GAIN_THRESHOLD = 1.05;
+    private static volatile ConcurrencyController global = new ConcurrencyController(Integer.MAX_VALUE, Integer.MAX_VALUE,
+        Collections.emptyMap(), false);
+
+    private final int maxTotal;
+    private final int maxPerHost;
+    private final Map<String, Integer> hostLimits;
+    private final boolean adaptive;
+    private final Map<String, HostState> hosts = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private int inFlight;
+
+    public ConcurrencyController(int maxTotal, int maxPerHost, Map<String, Integer> hostLimits, boolean adaptive) {
+        this.maxTotal = Math.max(1, maxTotal);
+        this.maxPerHost = Math.max(1, maxPerHost);
+        Map<String, Integer> normalized = new HashMap<>();
+        hostLimits.forEach((host, limit) -> normalized.put(host.toLowerCase(Locale.ROOT), Math.max(1, limit)));
+        this.hostLimits = normalized;
+        this.adaptive = adaptive;
+    }
+
+    public static ConcurrencyController global() {
+        return global;
+    }
+
+    public static void setGlobal(ConcurrencyController controller) {
+        global = controller;
+    }
+
+    /**
+     * Blocks until a request to the host may be started.
+     */
+    public Permit acquire(String host) throws InterruptedIOException {
+        lock.lock();
+        try {
+            HostState state = hosts.computeIfAbsent(host == null ? "" : host.toLowerCase(Locale.ROOT), this::createState);
+            while (inFlight >= maxTotal || state.inFlight >= state.currentLimit()) {
+                released.await();
+            }
+            inFlight++;
+            state.inFlight++;
+            return new Permit(state);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection slot to " + host);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int currentLimit(String host) {
+        lock.lock();
+        try {
+            HostState state = hosts.get(host.toLowerCase(Locale.ROOT));
+            return state != null ? state.currentLimit() : createState(host.toLowerCase(Locale.ROOT)).currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private HostState createState(String host) {
+        return new HostState(capFor(host));
+    }
+
+    private int capFor(String host) {
+        // Most specific configured domain wins, so "forgecdn.net" also covers "edge.forgecdn.net"
+        String candidate = host;
+        while (true) {
+            Integer limit = hostLimits.get(candidate);
+            if (limit != null) {
+                return limit;
+            }
+            int dot = candidate.indexOf('.');
+            if (dot < 0) {
+                return maxPerHost;
+            }
+            candidate = candidate.substring(dot + 1);
+        }
+    }
+
+    private void release(HostState state, long bytes, long nanos, boolean congested) {
+        lock.lock();
+        try {
+            inFlight--;
+            state.inFlight--;
+            if (adaptive) {
+                if (congested) {
+                    state.limit = Math.max(1, state.limit / 2);
+                    state.resetWindow();
+                } else {
+                    state.recordCompletion(bytes, nanos);
+                }
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class HostState {
+        private final int cap;
+        private int limit;
+        private int inFlight;
+        private int windowCompletions;
+        private long windowBytes;
+        private long windowNanos;
+        private double previousThroughput;
+
+        private HostState(int cap) {
+            this.cap = cap;
+            this.limit = adaptive ? Math.min(cap, INITIAL_ADAPTIVE_LIMIT) : cap;
+        }
+
+        private int currentLimit() {
+            return limit;
+        }
+
+        private void recordCompletion(long bytes, long nanos) {
+            windowCompletions++;
+            windowBytes += bytes;
+            windowNanos += Math.max(1, nanos);
+            if (windowCompletions < limit) {
+                return;
+            }
+
+            // Bytes per nanosecond of request time, scaled by the window to approximate the aggregate rate
+            double throughput = (double) windowBytes / windowNanos * limit;
+            if (throughput >= previousThroughput * THROUGHPUT_GAIN_THRESHOLD && limit < cap) {
+                limit++;
+            }
+            previousThroughput = throughput;
+            resetWindow();
+        }
+
+        private void resetWindow() {
+            windowCompletions = 0;
+            windowBytes = 0;
+            windowNanos = 0;
+        }
+    }
+
+    /**
+     * A granted request slot, released exactly once when the request completed.
+     */
+    public final class Permit {
+        private final HostState state;
+        private final long started = System.nanoTime();
+        private long bytes;
+        private boolean released;
+
+        private Permit(HostState state) {
+            this.state = state;
+        }
+
+        public void transferred(long count) {
+            bytes += count;
+        }
+
+        public void release() {
+            release(false);
+        }
+
+        /**
+         * @param congested whether the request failed in a way that indicates the host or the link is overloaded
+         */
+        public void release(boolean congested) {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            ConcurrencyController.this.release(state, bytes, System.nanoTime() - started, congested);
+        }
+    }
+}
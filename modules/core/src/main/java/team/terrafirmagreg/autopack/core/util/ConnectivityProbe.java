@@ -0,0 +1,140 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks before any request is made whether the servers a modpack needs can be reached at all, by resolving their
+ * hosts and opening a TCP connection to each in parallel. A single reachable server is enough, servers which are down
+ * on their own are left to the {@link CircuitBreaker}.
+ * <p>
+ * Only hosts which don't resolve or refuse the connection count as unreachable. A lookup or connection which is merely
+ * slow, as with a cold DNS cache or a high-latency link, says nothing about whether the servers can be reached and
+ * doesn't take the run offline.
+ * <p>
+ * Behind a proxy the hosts may neither resolve nor be reachable directly, so the check is skipped there.
+ */
+public final class ConnectivityProbe {
+    /**
+     * Set to {@code true} to start offline without checking, or to {@code false} to never go offline.
+     */
+    public static final String OFFLINE_PROPERTY = "autopack.offline";
+    public static final int DEFAULT_TIMEOUT_MILLIS = 800;
+
+    private ConnectivityProbe() {
+    }
+
+    /**
+     * @return false only if every server of the urls definitely can't be reached, true if any was reached, if any
+     * didn't answer within the timeout either way or if there are none
+     */
+    public static boolean isAnyReachable(Collection<URL> urls, int timeoutMillis) throws InterruptedException {
+        Map<String, InetSocketAddress> targets = new LinkedHashMap<>();
+        for (URL url : urls) {
+            if (url.getHost() == null || url.getHost().isEmpty()) {
+                continue;
+            }
+            if (usesProxy(url)) {
+                // Can't tell, assume the server is reachable
+                return true;
+            }
+            int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+            targets.putIfAbsent(url.getHost().toLowerCase(Locale.ROOT) + ":" + port,
+                InetSocketAddress.createUnresolved(url.getHost(), port));
+        }
+        if (targets.isEmpty()) {
+            return true;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(targets.size(), 16), runnable -> {
+            Thread thread = new Thread(runnable, "Director Connectivity Probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+            for (InetSocketAddress target : targets.values()) {
+                completion.submit(() -> connect(target, deadline));
+            }
+
+            for (int i = 0; i < targets.size(); i++) {
+                long remaining = deadline - System.nanoTime();
+                Future<Result> done = completion.poll(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    // Inconclusive, leave slow servers to the circuit breaker
+                    return true;
+                }
+                try {
+                    if (done.get() != Result.UNREACHABLE) {
+                        return true;
+                    }
+                } catch (ExecutionException e) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            // Host lookups can't be interrupted, they end on their own on the daemon threads
+            executor.shutdownNow();
+        }
+    }
+
+    private static Result connect(InetSocketAddress target, long deadline) {
+        try {
+            InetAddress address = InetAddress.getByName(target.getHostString());
+            int remaining = (int) TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return Result.INCONCLUSIVE;
+            }
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(address, target.getPort()), remaining);
+                return Result.REACHABLE;
+            }
+        } catch (UnknownHostException | SocketException e) {
+            // The host doesn't resolve, refuses the connection or there is no route to it
+            return Result.UNREACHABLE;
+        } catch (IOException e) {
+            return Result.INCONCLUSIVE;
+        }
+    }
+
+    private enum Result {
+        REACHABLE,
+        UNREACHABLE,
+        INCONCLUSIVE
+    }
+
+    private static boolean usesProxy(URL url) {
+        ProxySelector selector = ProxySelector.getDefault();
+        if (selector == null) {
+            return false;
+        }
+        try {
+            List<Proxy> proxies = selector.select(url.toURI());
+            return proxies != null && proxies.stream().anyMatch(proxy -> proxy.type() != Proxy.Type.DIRECT);
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import team.terrafirmagreg.autopack.core.manage.ProgressCallback;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads files through a {@code .part} file next to the target, so an interrupted download can be resumed with a
+ * range request on the next attempt instead of starting over.
+ * <p>
+ * A download is only resumed if the server provided a strong validator (ETag or Last-Modified) for the partial data,
+ * which is sent back as {@code If-Range}, so a changed remote file is downloaded from the beginning again.
+ * <p>
+ * Large files from servers accepting byte ranges can be split into segments which are fetched concurrently and
+ * written at their offset into a pre-allocated part file. A segment which breaks off is continued with a range
+ * request for its rest, but segmented parts are not resumed by later downloads, as they contain gaps.
+ */
+public class FileDownloader {
+    public static final String PART_SUFFIX = ".part";
+    private static final String VALIDATOR_SUFFIX = ".part.validator";
+    static final long SEGMENTED_THRESHOLD = 8 * 1024 * 1024;
+    static final long MIN_SEGMENT_SIZE = 2 * 1024 * 1024;
+    private static final AtomicInteger SEGMENT_THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService SEGMENT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Director Segment " + SEGMENT_THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param digest       digest fed with every byte of the resulting file, including already downloaded parts, may be null
+     * @param expectedSize the expected size of the file or a negative value if unknown
+     */
+    public static void download(URL url, Path target, ProgressCallback callback, MultiDigest digest, long expectedSize)
+        throws IOException {
+        download(url, target, callback, digest, expectedSize, 1);
+    }
+
+    /**
+     * @param maxSegments maximum amount of concurrent range requests used for files of at least
+     *                    {@link #SEGMENTED_THRESHOLD} bytes, 1 to always use a single connection
+     */
+    public static void download(URL url, Path target, ProgressCallback callback, MultiDigest digest, long expectedSize,
+                                int maxSegments) throws IOException {
+        RetryPolicy.Attempts attempts = RetryPolicy.global().start();
+        while (true) {
+            try {
+                downloadOnce(url, target, callback, digest, expectedSize, maxSegments);
+                return;
+            } catch (TransferException e) {
+                // The part file keeps what was received, so the next attempt only fetches the rest
+                attempts.retryOrThrow(e.getCause(), true);
+                if (digest != null) {
+                    digest.reset();
+                }
+            }
+        }
+    }
+
+    private static void downloadOnce(URL url, Path target, ProgressCallback callback, MultiDigest digest,
+                                     long expectedSize, int maxSegments) throws IOException {
+        Path partFile = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+        Path validatorFile = target.resolveSibling(target.getFileName() + VALIDATOR_SUFFIX);
+
+        long existing = 0;
+        String validator = readValidator(validatorFile, url);
+        if (validator != null && Files.isRegularFile(partFile)) {
+            existing = Files.size(partFile);
+            if (expectedSize >= 0 && existing >= expectedSize) {
+                // Nothing sensible left to request, verify by downloading again
+                existing = 0;
+            }
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        if (existing > 0) {
+            headers.put("Range", "bytes=" + existing + "-");
+            headers.put("If-Range", validator);
+        }
+
+        WebGetResponse response;
+        try {
+            response = WebClient.get(url, headers);
+        } catch (IOException e) {
+            if (existing == 0 || !(e instanceof HttpStatusException) || ((HttpStatusException) e).getStatus() != 416) {
+                throw e;
+            }
+            // The server can't serve the rest of the part, start over
+            discard(partFile, validatorFile);
+            existing = 0;
+            response = WebClient.get(url);
+        }
+
+        try (WebGetResponse active = response) {
+            boolean resumed = existing > 0 && active.getStatus() == 206
+                && contentRangeStart(active.getHeader("Content-Range")) == existing;
+            if (active.getStatus() == 206 && !resumed) {
+                discard(partFile, validatorFile);
+                throw new IOException("Server answered with an unexpected range for " + url);
+            }
+
+            String newValidator = resumed ? validator : validatorOf(active);
+            int segments = resumed ? 1 : segmentCount(active, newValidator, expectedSize, maxSegments);
+            if (segments > 1) {
+                // Without a validator file the gapped part is never mistaken for a resumable prefix
+                Files.deleteIfExists(validatorFile);
+                try {
+                    downloadSegments(url, active, partFile, newValidator, segments, callback);
+                } catch (IOException e) {
+                    discard(partFile, validatorFile);
+                    throw e;
+                }
+                if (digest != null) {
+                    digest.update(partFile);
+                    digest.finish();
+                }
+                Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING);
+                return;
+            }
+
+            if (newValidator != null) {
+                writeValidator(validatorFile, url, newValidator);
+            } else {
+                Files.deleteIfExists(validatorFile);
+            }
+
+            OutputStream outputStream;
+            if (resumed) {
+                if (digest != null) {
+                    digest.update(partFile);
+                }
+                outputStream = Files.newOutputStream(partFile, StandardOpenOption.APPEND);
+            } else {
+                existing = 0;
+                outputStream = Files.newOutputStream(partFile);
+            }
+
+            long remaining = expectedSize >= 0 ? expectedSize - existing : -1;
+            try {
+                IOOperation.copy(active.getInputStream(), outputStream, callback, active.getStreamSize(), digest,
+                    remaining);
+            } catch (IOException e) {
+                if (expectedSize >= 0 && Files.isRegularFile(partFile) && Files.size(partFile) > expectedSize) {
+                    // More data than the file can have, the partial data can't be trusted anymore
+                    discard(partFile, validatorFile);
+                }
+                throw new TransferException(e);
+            }
+
+            // A dropped connection may look like a regular end of the stream, keep the part to resume it later
+            long size = Files.size(partFile);
+            long announced = active.getStreamSize() >= 0 ? existing + active.getStreamSize() : -1;
+            long required = expectedSize >= 0 ? expectedSize : announced;
+            if (required >= 0 && size < required) {
+                throw new TransferException(new EOFException(
+                    "Download of " + url + " ended after " + size + " of " + required + " bytes"));
+            }
+        }
+
+        Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(validatorFile);
+    }
+
+    private static int segmentCount(WebGetResponse response, String validator, long expectedSize, int maxSegments) {
+        long size = response.getStreamSize();
+        // Every segment must come from the same version of the file, which If-Range can only ensure with a validator
+        if (maxSegments <= 1 || response.getStatus() != 200 || validator == null || size < SEGMENTED_THRESHOLD
+            || (expectedSize >= 0 && expectedSize != size)
+            || !"bytes".equalsIgnoreCase(response.getHeader("Accept-Ranges"))) {
+            return 1;
+        }
+        return (int) Math.max(1, Math.min(maxSegments, size / MIN_SEGMENT_SIZE));
+    }
+
+    /**
+     * Uses the already open response for the first segment and fetches the remaining ones concurrently. The response
+     * is closed once the first segment is written, so its connection slot is free for the remaining segments even if
+     * the host only allows a single connection.
+     */
+    private static void downloadSegments(URL url, WebGetResponse response, Path partFile, String validator,
+                                         int segments, ProgressCallback callback) throws IOException {
+        long size = response.getStreamSize();
+        long segmentSize = (size + segments - 1) / segments;
+        try (RandomAccessFile file = new RandomAccessFile(partFile.toFile(), "rw")) {
+            file.setLength(size);
+        }
+
+        AtomicLong progress = new AtomicLong();
+        callback.indeterminate(false);
+        List<Future<?>> futures = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.WRITE)) {
+            for (int i = 1; i < segments; i++) {
+                Segment segment = new Segment(i * segmentSize, Math.min(size, (i + 1) * segmentSize) - 1);
+                futures.add(SEGMENT_EXECUTOR.submit(() -> {
+                    fetchSegment(url, validator, null, channel, segment, size, progress, callback);
+                    return null;
+                }));
+            }
+
+            Segment first = new Segment(0, Math.min(size, segmentSize) - 1);
+            fetchSegment(url, validator, response, channel, first, size, progress, callback);
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + url);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause
+                : new IOException("Failed to download a segment of " + url, cause);
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Writes the segment, requesting the rest of it again as long as the retry policy allows if the body breaks off.
+     *
+     * @param opened response already positioned at the start of the segment, or null to request the segment
+     */
+    private static void fetchSegment(URL url, String validator, WebGetResponse opened, FileChannel channel,
+                                     Segment segment, long size, AtomicLong progress, ProgressCallback callback)
+        throws IOException {
+        RetryPolicy.Attempts attempts = RetryPolicy.global().start();
+        WebGetResponse response = opened;
+        while (true) {
+            if (response == null) {
+                Map<String, String> headers = new HashMap<>();
+                headers.put("Range", "bytes=" + segment.position + "-" + segment.end);
+                headers.put("If-Range", validator);
+                response = WebClient.get(url, headers);
+                if (response.getStatus() != 206
+                    || contentRangeStart(response.getHeader("Content-Range")) != segment.position) {
+                    response.close();
+                    throw new IOException("Server answered with an unexpected range for " + url);
+                }
+            }
+
+            try (WebGetResponse active = response) {
+                writeSegment(active.getInputStream(), channel, segment, size, progress, callback);
+                return;
+            } catch (IOException e) {
+                attempts.retryOrThrow(e, true);
+            }
+            response = null;
+        }
+    }
+
+    private static void writeSegment(InputStream in, FileChannel channel, Segment segment, long size,
+                                     AtomicLong progress, ProgressCallback callback) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        while (segment.position <= segment.end) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, segment.end - segment.position + 1));
+            if (read < 0) {
+                throw new EOFException("Segment ending at " + segment.end + " broke off at " + segment.position);
+            }
+            ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+            while (chunk.hasRemaining()) {
+                segment.position += channel.write(chunk, segment.position);
+            }
+            long current = progress.addAndGet(read);
+            synchronized (callback) {
+                callback.reportProgress(current, size);
+            }
+        }
+    }
+
+    private static String validatorOf(WebGetResponse response) {
+        String etag = response.getHeader("ETag");
+        // Weak validators must not be used with If-Range
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return response.getHeader("Last-Modified");
+    }
+
+    private static long contentRangeStart(String contentRange) {
+        // Format: bytes <start>-<end>/<length>
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return -1;
+        }
+        int dash = contentRange.indexOf('-');
+        if (dash < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring("bytes ".length(), dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String readValidator(Path validatorFile, URL url) {
+        if (!Files.isRegularFile(validatorFile)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(validatorFile)) {
+            properties.load(stream);
+        } catch (IOException e) {
+            return null;
+        }
+        // A part downloaded from a different url belongs to a different file
+        if (!url.toString().equals(properties.getProperty("url"))) {
+            return null;
+        }
+        return properties.getProperty("validator");
+    }
+
+    private static void writeValidator(Path validatorFile, URL url, String validator) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("url", url.toString());
+        properties.setProperty("validator", validator);
+        try (OutputStream stream = Files.newOutputStream(validatorFile)) {
+            properties.store(stream, null);
+        }
+    }
+
+    private static void discard(Path partFile, Path validatorFile) {
+        try {
+            Files.deleteIfExists(partFile);
+            Files.deleteIfExists(validatorFile);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Range of the part file a segment covers, the position advances as the segment is written.
+     */
+    private static final class Segment {
+        private final long end;
+        private long position;
+
+        private Segment(long start, long end) {
+            this.position = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * A failure while receiving the body of a single connection download, which the next attempt can resume.
+     */
+    private static final class TransferException extends IOException {
+        private TransferException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Races equivalent requests to several mirrors. The first mirror is asked right away and every further one as soon
+ * as the previous failed or did not answer within the hedge delay, the first successful answer wins.
+ * <p>
+ * The hedge delay follows the 95th percentile of recent answer times, so the second mirror is only asked for the
+ * slowest few percent of requests, and is capped by the configured maximum which is also used until enough answers
+ * have been seen. A maximum of 0 disables hedging, mirrors are then only asked after the previous one failed.
+ */
+public class HedgingPolicy {
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 2000;
+    private static final int SAMPLE_WINDOW = 64;
+    private static final int MIN_SAMPLES = 8;
+    private static final long MIN_DELAY_MILLIS = 50;
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = createExecutor();
+    private static volatile HedgingPolicy global = new HedgingPolicy(DEFAULT_MAX_DELAY_MILLIS);
+
+    private final long maxDelayMillis;
+    private final long[] samples = new long[SAMPLE_WINDOW];
+    private int sampleCount;
+    private int nextSample;
+
+    public HedgingPolicy(long maxDelayMillis) {
+        this.maxDelayMillis = Math.max(0, maxDelayMillis);
+    }
+
+    public static HedgingPolicy global() {
+        return global;
+    }
+
+    public static void setGlobal(HedgingPolicy policy) {
+        global = policy;
+    }
+
+    /**
+     * @return the current hedge delay in milliseconds, or -1 if hedging is disabled
+     */
+    public synchronized long delayMillis() {
+        if (maxDelayMillis == 0) {
+            return -1;
+        }
+        if (sampleCount < MIN_SAMPLES) {
+            return maxDelayMillis;
+        }
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        long p95 = sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+        return Math.min(maxDelayMillis, Math.max(MIN_DELAY_MILLIS, p95));
+    }
+
+    synchronized void record(long millis) {
+        samples[nextSample] = millis;
+        nextSample = (nextSample + 1) % SAMPLE_WINDOW;
+        sampleCount = Math.min(SAMPLE_WINDOW, sampleCount + 1);
+    }
+
+    /**
+     * @param attempts the same request to each mirror, in order of preference
+     * @return the first successful answer
+     * @throws IOException the failure of the last mirror, with the failures of the others suppressed
+     */
+    public <T> T race(List<Attempt<T>> attempts) throws IOException {
+        CompletionService<T> completion = new ExecutorCompletionService<>(EXECUTOR);
+        List<Future<T>> futures = new ArrayList<>();
+        IOException failure = null;
+        int started = 0;
+        int running = 0;
+
+        try {
+            futures.add(completion.submit(timed(attempts.get(started++))));
+            running++;
+
+            while (running > 0) {
+                Future<T> done;
+                long delay = delayMillis();
+                if (started < attempts.size() && delay >= 0) {
+                    done = completion.poll(delay, TimeUnit.MILLISECONDS);
+                    if (done == null) {
+                        // Too slow, ask the next mirror as well and take whichever answers first
+                        futures.add(completion.submit(timed(attempts.get(started++))));
+                        running++;
+                        continue;
+                    }
+                } else {
+                    done = completion.take();
+                }
+                running--;
+
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    IOException attemptFailure = asIOException(e.getCause());
+                    if (failure != null) {
+                        attemptFailure.addSuppressed(failure);
+                    }
+                    failure = attemptFailure;
+                    if (running == 0 && started < attempts.size()) {
+                        futures.add(completion.submit(timed(attempts.get(started++))));
+                        running++;
+                    }
+                }
+            }
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a mirror to answer");
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Attempts mostly wait on the network, so they run on virtual threads where available instead of occupying a
+     * platform thread each while the callers are virtual threads themselves.
+     */
+    private static ExecutorService createExecutor() {
+        ExecutorService virtualExecutor = VirtualThreads.newPerTaskExecutor();
+        if (virtualExecutor != null) {
+            return virtualExecutor;
+        }
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "Director Hedge " + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private <T> Callable<T> timed(Attempt<T> attempt) {
+        return () -> {
+            long start = System.nanoTime();
+            T result = attempt.call();
+            record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        };
+    }
+
+    private static IOException asIOException(Throwable cause) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    public interface Attempt<T> {
+        T call() throws IOException;
+    }
+}
@@ -0,0 +1,35 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Thrown by the {@link WebClient} when a server answers with a status outside of the 2xx range.
+ */
+public class HttpStatusException extends IOException {
+    private final int status;
+    private final URL url;
+    private final long retryAfterMillis;
+
+    public HttpStatusException(int status, URL url, long retryAfterMillis) {
+        super("Server returned HTTP response code: " + status + " for URL: " + url);
+        this.status = status;
+        this.url = url;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    /**
+     * @return how long the server asked to wait before the next request, or -1 if it did not say
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,40 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Performs single HTTP exchanges for the {@link WebClient}, which follows redirects, applies the concurrency limits
+ * and handles errors on top of it.
+ */
+public interface HttpTransport {
+    /**
+     * @param headers all request headers to send, in order
+     * @param body    the request body or null to send none
+     */
+    Exchange send(String method, URL url, Map<String, String> headers, byte[] body) throws IOException;
+
+    /**
+     * A received response, whose body must either be read and closed or {@link #discard() discarded}.
+     */
+    interface Exchange {
+        int status() throws IOException;
+
+        Map<String, List<String>> headers();
+
+        /**
+         * @return the announced length of the body or -1 if unknown
+         */
+        long contentLength();
+
+        InputStream body() throws IOException;
+
+        /**
+         * Releases a response which is not handed to the caller, keeping its connection reusable where possible.
+         */
+        void discard();
+    }
+}
@@ -8,20 +8,44 @@ import java.io.OutputStream;
 
 public class IOOperation {
     public static void copy(InputStream inputStream, OutputStream outputStream, ProgressCallback callback, long knownLength) throws IOException {
+        copy(inputStream, outputStream, callback, knownLength, null, -1);
+    }
+
+    /**
+     * Copies the stream while feeding every byte into the given digest, so the result can be verified without
+     * reading the written data back. The digest is only finished when the copy completed successfully.
+     *
+     * @param maxLength the maximum amount of bytes expected, the transfer is aborted as soon as it is exceeded,
+     *                  or a negative value if unknown
+     */
+    public static void copy(InputStream inputStream, OutputStream outputStream, ProgressCallback callback, long knownLength,
+                            MultiDigest digest, long maxLength) throws IOException {
         callback.indeterminate(knownLength < 0);
 
         byte[] buffer = new byte[8192];
 
-        long progress = 0;
-        int read;
-        while ((read = inputStream.read(buffer)) > 0) {
-            progress += read;
-            callback.reportProgress(progress, knownLength);
-            outputStream.write(buffer, 0, read);
+        try {
+            long progress = 0;
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                progress += read;
+                if (maxLength >= 0 && progress > maxLength) {
+                    throw new IOException("Received more data than the expected " + maxLength + " bytes");
+                }
+                callback.reportProgress(progress, knownLength);
+                outputStream.write(buffer, 0, read);
+                if (digest != null) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        } finally {
+            inputStream.close();
+            outputStream.close();
         }
 
-        inputStream.close();
-        outputStream.close();
+        if (digest != null) {
+            digest.finish();
+        }
     }
 
     public static void copy(InputStream inputStream, OutputStream outputStream) throws IOException {
@@ -0,0 +1,129 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes several message digests over the same stream of bytes, so data only has to be read once no matter
+ * how many hash algorithms a mod declares.
+ */
+public class MultiDigest {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, MessageDigest> digests;
+    private Map<String, String> results;
+    private long length;
+
+    public MultiDigest(Map<String, MessageDigest> digests) {
+        this.digests = digests;
+    }
+
+    /**
+     * Creates a digest for every supported algorithm, unsupported algorithms are logged and skipped.
+     */
+    public static MultiDigest create(Collection<String> algorithms, LoggerDelegate logger) {
+        Map<String, MessageDigest> digests = new LinkedHashMap<>();
+        for (String algorithm : algorithms) {
+            try {
+                digests.put(algorithm, MessageDigest.getInstance(algorithm));
+            } catch (NoSuchAlgorithmException e) {
+                logger.warn("Hash algorithm {0} not supported by JVM", algorithm);
+            }
+        }
+        return new MultiDigest(digests);
+    }
+
+    public boolean isEmpty() {
+        return digests.isEmpty();
+    }
+
+    public Set<String> algorithms() {
+        return digests.keySet();
+    }
+
+    public void update(byte[] buffer, int offset, int count) {
+        if (results != null) {
+            throw new IllegalStateException("Digest has already been finished");
+        }
+        for (MessageDigest digest : digests.values()) {
+            digest.update(buffer, offset, count);
+        }
+        length += count;
+    }
+
+    /**
+     * Feeds the whole file through a bounded buffer, so memory usage does not depend on the file size.
+     */
+    public void update(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int read;
+            while ((read = channel.read(buffer)) >= 0) {
+                update(buffer.array(), 0, read);
+                buffer.clear();
+            }
+        }
+    }
+
+    public void finish() {
+        if (results != null) {
+            return;
+        }
+        Map<String, String> computed = new LinkedHashMap<>();
+        for (Map.Entry<String, MessageDigest> entry : digests.entrySet()) {
+            computed.put(entry.getKey(), toHex(entry.getValue().digest()));
+        }
+        results = Collections.unmodifiableMap(computed);
+    }
+
+    /**
+     * Discards everything fed so far, so a failed download can be fed again from the beginning.
+     */
+    public void reset() {
+        for (MessageDigest digest : digests.values()) {
+            digest.reset();
+        }
+        results = null;
+        length = 0;
+    }
+
+    public boolean isFinished() {
+        return results != null;
+    }
+
+    /**
+     * @return the lowercase hex digests keyed by algorithm, only available once {@link #finish()} has been called
+     */
+    public Map<String, String> results() {
+        if (results == null) {
+            throw new IllegalStateException("Digest has not been finished yet");
+        }
+        return results;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
@@ -28,8 +28,52 @@ public final class NetworkExceptions {
         return false;
     }
 
+    /**
+     * @return whether the failure only happened because the {@link WebClient} is offline
+     */
+    public static boolean isOffline(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof OfflineException) {
+                return true;
+            }
+            if (t == t.getCause()) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether a connection or response timed out, including the timeouts of the {@code java.net.http} client
+     * which do not extend {@link SocketTimeoutException}
+     */
+    public static boolean isTimeout(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof SocketTimeoutException) {
+                return true;
+            }
+            for (Class<?> type = t.getClass(); type != null; type = type.getSuperclass()) {
+                if ("java.net.http.HttpTimeoutException".equals(type.getName())) {
+                    return true;
+                }
+            }
+            if (t == t.getCause()) {
+                break;
+            }
+        }
+        return false;
+    }
+
     public static String describe(Throwable throwable) {
         for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof OfflineException) {
+                return "No server could be reached when starting, so only files which are already available locally "
+                    + "are used. Please check your internet connection.";
+            }
+            if (t instanceof CircuitOpenException) {
+                return "The server " + ((CircuitOpenException) t).getHost() + " could not be reached several times "
+                    + "in a row, so it is skipped for now. Please check your internet connection.";
+            }
             if (t instanceof UnknownHostException) {
                 return "Could not resolve host \"" + t.getMessage() + "\". "
                     + "Please check your internet connection or DNS settings.";
@@ -0,0 +1,12 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import java.net.ConnectException;
+
+/**
+ * Thrown instead of connecting anywhere while the {@link WebClient} is offline.
+ */
+public class OfflineException extends ConnectException {
+    public OfflineException(String host) {
+        super("Offline mode, not connecting to " + host);
+    }
+}
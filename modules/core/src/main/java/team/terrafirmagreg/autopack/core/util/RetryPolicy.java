@@ -0,0 +1,238 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import javax.net.ssl.SSLHandshakeException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed request is worth repeating and how long to wait before doing so.
+ * <p>
+ * Failures to connect and the statuses servers answer with while they are briefly unavailable or rate limiting are
+ * retried with a jittered exponential backoff, or after the delay the server asked for in {@code Retry-After} or
+ * Modrinth's {@code X-Ratelimit-Reset}. Everything else, such as unknown hosts, rejected certificates, client errors
+ * or a server which accepted the connection but never answered, fails right away.
+ * <p>
+ * All requests share a retry budget which is drained by every retry and slowly refilled by successful requests, so a
+ * dead network fails after a handful of retries instead of every request retrying on its own.
+ */
+public class RetryPolicy {
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final RetryPolicy NONE = new RetryPolicy(0);
+    // Delays asked for by the server beyond this are not waited for
+    static final long MAX_SERVER_DELAY_MILLIS = 60_000;
+    private static final long DEFAULT_BASE_DELAY_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 8_000;
+    private static final int BUDGET = 20;
+    // The budget is tracked in tenths, a retry costs a whole one, a success refunds a tenth
+    private static final int RETRY_COST = 10;
+    private static volatile RetryPolicy global = new RetryPolicy(DEFAULT_MAX_RETRIES);
+
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final int maxTokens;
+    private int tokens;
+
+    public RetryPolicy(int maxRetries) {
+        this(maxRetries, DEFAULT_BASE_DELAY_MILLIS, BUDGET);
+    }
+
+    RetryPolicy(int maxRetries, long baseDelayMillis, int budget) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxTokens = budget * RETRY_COST;
+        this.tokens = maxTokens;
+    }
+
+    public static RetryPolicy global() {
+        return global;
+    }
+
+    public static void setGlobal(RetryPolicy policy) {
+        global = policy;
+    }
+
+    /**
+     * @return the attempts of a single request, which must be safe to send again
+     */
+    public Attempts start() {
+        return new Attempts();
+    }
+
+    /**
+     * @return whether the failure is likely to go away when the request is repeated shortly after
+     */
+    public static boolean isTransient(IOException failure) {
+        if (failure instanceof HttpStatusException) {
+            int status = ((HttpStatusException) failure).getStatus();
+            return status == 408 || status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+        }
+        if (failure instanceof CircuitOpenException || failure instanceof OfflineException) {
+            // Waiting a moment does not change the mind of the breaker, nor bring the network back
+            return false;
+        }
+        if (!NetworkExceptions.isConnectivityError(failure)) {
+            return isConnectTimeout(failure);
+        }
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            // Wrong hosts and certificates do not fix themselves, and a silent server already cost a full read timeout
+            if (t instanceof UnknownHostException || t instanceof SSLHandshakeException
+                || (t instanceof SocketTimeoutException && !isConnectTimeout(t))) {
+                return false;
+            }
+            if (t == t.getCause()) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the delay a server asked for from {@code Retry-After}, either in seconds or as a date, or from the
+     * {@code X-Ratelimit-Reset} seconds Modrinth sends once {@code X-Ratelimit-Remaining} reached 0.
+     *
+     * @return the delay in milliseconds or -1 if the server did not ask for one
+     */
+    public static long serverDelayMillis(Map<String, List<String>> headers) {
+        String retryAfter = header(headers, "Retry-After");
+        if (retryAfter != null) {
+            try {
+                return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+            } catch (NumberFormatException e) {
+                try {
+                    Instant date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                    return Math.max(0, Duration.between(Instant.now(), date).toMillis());
+                } catch (DateTimeParseException ignored) {
+                }
+            }
+        }
+
+        String remaining = header(headers, "X-Ratelimit-Remaining");
+        String reset = header(headers, "X-Ratelimit-Reset");
+        if (reset != null && "0".equals(remaining != null ? remaining.trim() : null)) {
+            try {
+                return Math.max(0, Long.parseLong(reset.trim()) * 1000);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return whether the failure left a prefix of the body behind, a read timeout or a body which ended early
+     */
+    private static boolean isBrokenOff(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof SocketTimeoutException || t instanceof EOFException) {
+                return true;
+            }
+            if (t == t.getCause()) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isConnectTimeout(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            // HttpURLConnection and java.net.http report connect timeouts differently from read timeouts
+            if ((t instanceof SocketTimeoutException && t.getMessage() != null && t.getMessage().startsWith("connect"))
+                || "java.net.http.HttpConnectTimeoutException".equals(t.getClass().getName())) {
+                return true;
+            }
+            if (t == t.getCause()) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static String header(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (entry.getKey() != null && entry.getKey().equalsIgnoreCase(name)
+                && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    private synchronized boolean takeRetry() {
+        if (tokens < RETRY_COST) {
+            return false;
+        }
+        tokens -= RETRY_COST;
+        return true;
+    }
+
+    private synchronized void refund() {
+        tokens = Math.min(maxTokens, tokens + 1);
+    }
+
+    public final class Attempts {
+        private int retries;
+
+        private Attempts() {
+        }
+
+        public void succeeded() {
+            refund();
+        }
+
+        /**
+         * Waits before the next attempt if the failure is worth retrying.
+         *
+         * @throws IOException the failure itself if it should not or can not be retried anymore
+         */
+        public void retryOrThrow(IOException failure) throws IOException {
+            retryOrThrow(failure, false);
+        }
+
+        /**
+         * @param resumable whether the next attempt continues where this one stopped, which makes retrying read
+         *                  timeouts and bodies which ended early worthwhile as well
+         */
+        public void retryOrThrow(IOException failure, boolean resumable) throws IOException {
+            if (retries >= maxRetries || !(isTransient(failure) || (resumable && isBrokenOff(failure)))) {
+                throw failure;
+            }
+
+            long delay = backoffMillis();
+            if (failure instanceof HttpStatusException && ((HttpStatusException) failure).getRetryAfterMillis() >= 0) {
+                delay = ((HttpStatusException) failure).getRetryAfterMillis();
+                if (delay > MAX_SERVER_DELAY_MILLIS) {
+                    throw failure;
+                }
+            }
+            if (!takeRetry()) {
+                throw failure;
+            }
+
+            retries++;
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException interrupted = new InterruptedIOException("Interrupted while waiting to retry");
+                interrupted.addSuppressed(failure);
+                throw interrupted;
+            }
+        }
+
+        private long backoffMillis() {
+            long ceiling = Math.min(MAX_BACKOFF_MILLIS, baseDelayMillis << Math.min(retries, 16));
+            // Half fixed, half random, so clients that failed together do not retry together
+            return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        }
+    }
+}
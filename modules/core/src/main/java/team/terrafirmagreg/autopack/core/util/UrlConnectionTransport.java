@@ -0,0 +1,89 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transport available on every Java version, built on {@link HttpURLConnection} and the keep-alive cache of the JDK.
+ * <p>
+ * That cache is shared with everything else in the process and keeps at most 5 idle connections per host. Launchers
+ * running more parallel requests per host can raise it with {@code -Dhttp.maxConnections=16} on the command line,
+ * the property is only read once when the cache is first used.
+ */
+final class UrlConnectionTransport implements HttpTransport {
+
+    @Override
+    public Exchange send(String method, URL url, Map<String, String> headers, byte[] body) throws IOException {
+        URLConnection connection = url.openConnection();
+        if (!(connection instanceof HttpURLConnection)) {
+            throw new IOException("Can not send http request to " + url);
+        }
+
+        HttpURLConnection httpConnection = (HttpURLConnection) connection;
+        httpConnection.setConnectTimeout(WebClient.CONNECT_TIMEOUT);
+        httpConnection.setReadTimeout(WebClient.READ_TIMEOUT);
+        httpConnection.setInstanceFollowRedirects(false);
+        httpConnection.setRequestMethod(method);
+        headers.forEach(httpConnection::setRequestProperty);
+
+        if (body != null) {
+            httpConnection.setDoOutput(true);
+            httpConnection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream outputStream = httpConnection.getOutputStream()) {
+                outputStream.write(body);
+            }
+        } else {
+            httpConnection.connect();
+        }
+        return new ConnectionExchange(httpConnection);
+    }
+
+    private static final class ConnectionExchange implements Exchange {
+        private final HttpURLConnection connection;
+
+        private ConnectionExchange(HttpURLConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public int status() throws IOException {
+            return connection.getResponseCode();
+        }
+
+        @Override
+        public Map<String, List<String>> headers() {
+            Map<String, List<String>> headers = connection.getHeaderFields();
+            return headers != null ? headers : Collections.emptyMap();
+        }
+
+        @Override
+        public long contentLength() {
+            return connection.getContentLengthLong();
+        }
+
+        @Override
+        public InputStream body() throws IOException {
+            return connection.getInputStream();
+        }
+
+        @Override
+        public void discard() {
+            try {
+                InputStream stream = connection.getResponseCode() >= 400
+                    ? connection.getErrorStream() : connection.getInputStream();
+                if (stream != null && !WebClient.drain(stream)) {
+                    connection.disconnect();
+                }
+            } catch (IOException e) {
+                connection.disconnect();
+            }
+        }
+    }
+}
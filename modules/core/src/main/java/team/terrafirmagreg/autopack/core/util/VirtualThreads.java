@@ -0,0 +1,31 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads on Java 21 and newer while core still targets Java 8.
+ */
+public class VirtualThreads {
+    /**
+     * Set to {@code false} to keep all tasks on platform threads.
+     */
+    public static final String PROPERTY = "autopack.virtualThreads";
+
+    /**
+     * @return an executor starting a new virtual thread per task, or null if the runtime has no virtual threads
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        if ("false".equalsIgnoreCase(System.getProperty(PROPERTY))) {
+            return null;
+        }
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Before Java 21, or Java 19 and 20 without preview features enabled
+            return null;
+        }
+    }
+}
@@ -1,79 +1,302 @@
 package team.terrafirmagreg.autopack.core.util;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Performs requests through the best {@link HttpTransport} available on the running Java version: the HTTP/2 capable
+ * {@code java.net.http} client from the Java 11 classes when it can be loaded, {@link HttpURLConnection} otherwise.
+ * Setting the {@value #TRANSPORT_PROPERTY} system property to {@code urlconnection} forces the latter.
+ * <p>
+ * Both keep idle connections per host open. Finished responses are drained instead of disconnected, so redirect hops
+ * and later requests to the same host reuse the connection and skip the TCP and TLS handshakes.
+ * <p>
+ * Gets which fail transiently are sent again as decided by the {@link RetryPolicy}, error statuses are reported as
+ * {@link HttpStatusException}.
+ */
 public class WebClient {
     public static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/123.0.0.0 Safari/537.36";
     public static final int CONNECT_TIMEOUT = 15_000;
     public static final int READ_TIMEOUT = 30_000;
+    public static final String TRANSPORT_PROPERTY = "autopack.httpTransport";
+    private static final String HTTP_CLIENT_TRANSPORT = "team.terrafirmagreg.autopack.core.util.HttpClientTransport";
+    // Larger leftovers are cheaper to abandon with their connection than to download
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    private static volatile HttpTransport transport = createTransport();
+    private static volatile boolean offline;
+
+    public static HttpTransport transport() {
+        return transport;
+    }
+
+    static void setTransport(HttpTransport newTransport) {
+        transport = newTransport;
+    }
+
+    public static boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * @param offline whether http requests fail right away with an {@link OfflineException} instead of being sent
+     */
+    public static void setOffline(boolean offline) {
+        WebClient.offline = offline;
+    }
+
+    private static HttpTransport createTransport() {
+        if ("urlconnection".equalsIgnoreCase(System.getProperty(TRANSPORT_PROPERTY))) {
+            return new UrlConnectionTransport();
+        }
+        try {
+            return (HttpTransport) Class.forName(HTTP_CLIENT_TRANSPORT).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Java 8, or java.net.http is not part of the module graph
+            return new UrlConnectionTransport();
+        }
+    }
 
     public static WebGetResponse get(URL url) throws IOException {
-        URLConnection connection = url.openConnection();
-        applyTimeouts(connection);
-        if (!(connection instanceof HttpURLConnection)) {
+        return get(url, Collections.emptyMap());
+    }
+
+    /**
+     * @param requestHeaders additional headers sent with the request and every redirect
+     */
+    public static WebGetResponse get(URL url, Map<String, String> requestHeaders) throws IOException {
+        return get(url, requestHeaders, RetryPolicy.global());
+    }
+
+    /**
+     * @param retryPolicy decides which failures to send the request again for, {@link RetryPolicy#NONE} for callers
+     *                    with a fallback of their own
+     */
+    public static WebGetResponse get(URL url, Map<String, String> requestHeaders, RetryPolicy retryPolicy)
+        throws IOException {
+        if (!isHttp(url)) {
+            URLConnection connection = url.openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT);
+            connection.setReadTimeout(READ_TIMEOUT);
             return new WebGetResponse(connection.getInputStream(), connection.getContentLengthLong());
         }
 
-        int redirectCount = 0;
-        HttpURLConnection httpConnection = (HttpURLConnection) connection;
-        httpConnection.setInstanceFollowRedirects(false);
-        httpConnection.setRequestProperty("User-Agent", USER_AGENT);
-        httpConnection.connect();
-
+        RetryPolicy.Attempts attempts = retryPolicy.start();
         while (true) {
-            int status = httpConnection.getResponseCode();
-            if (status >= 300 && status <= 399) {
-                if (redirectCount > 10) {
-                    throw new IOException("Server tried to redirect too many times");
-                }
-
-                String newUrl = httpConnection.getHeaderField("Location");
-                if (newUrl == null || newUrl.isEmpty()) {
-                    throw new IOException("Server sent redirect without Location for " + url);
-                }
-                String cookies = readSetCookieHeader(httpConnection);
-                closeQuietly(httpConnection);
+            try {
+                WebGetResponse response = sendGet(url, requestHeaders);
+                attempts.succeeded();
+                return response;
+            } catch (IOException e) {
+                attempts.retryOrThrow(e);
+            }
+        }
+    }
 
-                try {
-                    url = upgradeHttpToHttpsIfSameHost(url, new URL(newUrl));
-                    connection = url.openConnection();
-                    applyTimeouts(connection);
+    private static WebGetResponse sendGet(URL url, Map<String, String> requestHeaders) throws IOException {
+        HttpTransport transport = WebClient.transport;
+        ConcurrencyController concurrency = ConcurrencyController.global();
+        ConcurrencyController.Permit permit = acquire(concurrency, url);
+        try {
+            int redirectCount = 0;
+            HttpTransport.Exchange exchange = send(transport, "GET", url, headersFor(requestHeaders, null), null);
 
-                    if (!(connection instanceof HttpURLConnection)) {
-                        throw new IOException("Server sent a redirect url which was not http: " + newUrl);
+            while (true) {
+                int status = exchange.status();
+                if (status >= 300 && status <= 399) {
+                    if (redirectCount > 10) {
+                        exchange.discard();
+                        throw new IOException("Server tried to redirect too many times");
                     }
 
-                    redirectCount++;
+                    String newUrl = header(exchange.headers(), "Location");
+                    if (newUrl == null || newUrl.isEmpty()) {
+                        exchange.discard();
+                        throw new IOException("Server sent redirect without Location for " + url);
+                    }
+                    String cookies = header(exchange.headers(), "Set-Cookie");
+                    exchange.discard();
 
-                    httpConnection = (HttpURLConnection) connection;
-                    httpConnection.setInstanceFollowRedirects(false);
-                    if (cookies != null) {
-                        httpConnection.setRequestProperty("Cookie", cookies);
+                    try {
+                        URL previous = url;
+                        url = upgradeHttpToHttpsIfSameHost(url, new URL(url, newUrl));
+                        if (!isHttp(url)) {
+                            throw new IOException("Server sent a redirect url which was not http: " + newUrl);
+                        }
+                        if (!url.getHost().equalsIgnoreCase(previous.getHost())) {
+                            // Redirects to a CDN count against the limit of the CDN, not of the API
+                            permit.release();
+                            permit = acquire(concurrency, url);
+                        } else {
+                            checkReachable(url);
+                        }
+                    } catch (MalformedURLException e) {
+                        throw new IOException("Server sent invalid redirect url", e);
                     }
-                    httpConnection.setRequestProperty("User-Agent", USER_AGENT);
-                    httpConnection.connect();
-                } catch (MalformedURLException e) {
-                    throw new IOException("Server sent invalid redirect url", e);
+
+                    redirectCount++;
+                    exchange = send(transport, "GET", url, headersFor(requestHeaders, cookies), null);
+                } else {
+                    break;
                 }
+            }
+
+            int status = exchange.status();
+            if (status < 200 || status > 299) {
+                long retryAfter = RetryPolicy.serverDelayMillis(exchange.headers());
+                exchange.discard();
+                permit.release(isCongestionStatus(status));
+                throw new HttpStatusException(status, url, retryAfter);
+            }
+
+            return new WebGetResponse(new PermitInputStream(exchange.body(), permit),
+                exchange.contentLength(), status, exchange.headers());
+        } catch (IOException | RuntimeException e) {
+            permit.release(isCongestionFailure(e));
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the body to the url and returns the response, posts are neither redirected nor retried.
+     */
+    public static WebGetResponse post(URL url, String contentType, byte[] body) throws IOException {
+        if (!isHttp(url)) {
+            throw new IOException("Can not post to non http url " + url);
+        }
+
+        ConcurrencyController.Permit permit = acquire(ConcurrencyController.global(), url);
+        try {
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("User-Agent", USER_AGENT);
+            headers.put("Content-Type", contentType);
+            HttpTransport.Exchange exchange = send(transport, "POST", url, headers, body);
+
+            int status = exchange.status();
+            if (status < 200 || status > 299) {
+                long retryAfter = RetryPolicy.serverDelayMillis(exchange.headers());
+                exchange.discard();
+                permit.release(isCongestionStatus(status));
+                throw new HttpStatusException(status, url, retryAfter);
+            }
+
+            return new WebGetResponse(new PermitInputStream(exchange.body(), permit), exchange.contentLength());
+        } catch (IOException | RuntimeException e) {
+            permit.release(isCongestionFailure(e));
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether the server may be asked at all before waiting for a connection slot to it, so requests which are
+     * never sent neither wait for a slot nor count against the limit of the host.
+     */
+    private static ConcurrencyController.Permit acquire(ConcurrencyController concurrency, URL url)
+        throws IOException {
+        checkReachable(url);
+        try {
+            return concurrency.acquire(url.getHost());
+        } catch (InterruptedIOException e) {
+            CircuitBreaker.global().abandoned(url);
+            throw e;
+        }
+    }
+
+    private static void checkReachable(URL url) throws IOException {
+        if (offline) {
+            throw new OfflineException(url.getHost());
+        }
+        CircuitBreaker.global().check(url);
+    }
+
+    /**
+     * Sends the request, which must have passed {@link #checkReachable}, and reports to the {@link CircuitBreaker}
+     * whether the server could be reached at all, any response status counts as reached.
+     */
+    private static HttpTransport.Exchange send(HttpTransport transport, String method, URL url,
+                                               Map<String, String> headers, byte[] body) throws IOException {
+        CircuitBreaker breaker = CircuitBreaker.global();
+        try {
+            HttpTransport.Exchange exchange = transport.send(method, url, headers, body);
+            exchange.status();
+            breaker.succeeded(url);
+            return exchange;
+        } catch (IOException e) {
+            if (!Thread.currentThread().isInterrupted()
+                && (NetworkExceptions.isConnectivityError(e) || NetworkExceptions.isTimeout(e))) {
+                breaker.failed(url);
             } else {
-                break;
+                // Cancelled, or failed without telling whether the server answers, like a hedge which lost the race
+                breaker.abandoned(url);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            breaker.abandoned(url);
+            throw e;
+        }
+    }
+
+    /**
+     * Consumes the rest of a response which is not handed to the caller and closes it.
+     *
+     * @return whether the stream ended, otherwise the rest was too large to be worth reading
+     */
+    static boolean drain(InputStream stream) throws IOException {
+        try (InputStream body = stream) {
+            byte[] buffer = new byte[8192];
+            long drained = 0;
+            int read;
+            while ((read = body.read(buffer)) >= 0) {
+                drained += read;
+                if (drained > MAX_DRAIN_BYTES) {
+                    return false;
+                }
             }
+            return true;
         }
+    }
 
-        int status = httpConnection.getResponseCode();
-        if (status < 200 || status > 299) {
-            closeQuietly(httpConnection);
-            throw new IOException("Server returned HTTP response code: " + status + " for URL: " + url);
+    private static Map<String, String> headersFor(Map<String, String> requestHeaders, String cookies) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (cookies != null) {
+            headers.put("Cookie", cookies);
         }
+        headers.put("User-Agent", USER_AGENT);
+        headers.putAll(requestHeaders);
+        return headers;
+    }
+
+    private static boolean isHttp(URL url) {
+        return "http".equalsIgnoreCase(url.getProtocol()) || "https".equalsIgnoreCase(url.getProtocol());
+    }
+
+    /**
+     * Too many requests and service unavailable are the statuses mirrors answer with when they are overloaded.
+     */
+    private static boolean isCongestionStatus(int status) {
+        return status == 429 || status == 503;
+    }
 
-        return new WebGetResponse(httpConnection.getInputStream(), httpConnection.getContentLengthLong());
+    /**
+     * @return false for requests which were skipped before being sent or cancelled by the caller, those say nothing
+     * about the load of the host
+     */
+    private static boolean isCongestionFailure(Throwable failure) {
+        if (failure instanceof OfflineException || failure instanceof CircuitOpenException) {
+            return false;
+        }
+        return !(failure instanceof InterruptedIOException) || failure instanceof SocketTimeoutException;
     }
 
     private static URL upgradeHttpToHttpsIfSameHost(URL previous, URL redirect) throws MalformedURLException {
@@ -91,39 +314,62 @@ public class WebClient {
         return new URL("https", redirect.getHost(), port, redirect.getFile());
     }
 
-    private static void applyTimeouts(URLConnection connection) {
-        connection.setConnectTimeout(CONNECT_TIMEOUT);
-        connection.setReadTimeout(READ_TIMEOUT);
-    }
-
-    private static void closeQuietly(HttpURLConnection connection) {
-        try {
-            InputStream errorStream = connection.getErrorStream();
-            if (errorStream != null) {
-                errorStream.close();
+    private static String header(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (entry.getKey() != null && entry.getKey().equalsIgnoreCase(name)
+                && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
             }
-        } catch (IOException ignored) {
         }
-        connection.disconnect();
+        return null;
     }
 
-    private static String readSetCookieHeader(HttpURLConnection connection) {
-        String cookies = connection.getHeaderField("Set-Cookie");
-        if (cookies != null) {
-            return cookies;
+    /**
+     * Reports the transferred bytes to the permit and releases it once the body has been consumed.
+     */
+    private static final class PermitInputStream extends FilterInputStream {
+        private final ConcurrencyController.Permit permit;
+
+        private PermitInputStream(InputStream in, ConcurrencyController.Permit permit) {
+            super(in);
+            this.permit = permit;
         }
 
-        Map<String, List<String>> headerFields = connection.getHeaderFields();
-        if (headerFields == null) {
-            return null;
+        @Override
+        public int read() throws IOException {
+            try {
+                int value = super.read();
+                if (value >= 0) {
+                    permit.transferred(1);
+                }
+                return value;
+            } catch (IOException e) {
+                permit.release(isCongestionFailure(e));
+                throw e;
+            }
         }
 
-        for (Map.Entry<String, List<String>> entry : headerFields.entrySet()) {
-            if (entry.getKey() != null && entry.getKey().equalsIgnoreCase("Set-Cookie")
-                && entry.getValue() != null && !entry.getValue().isEmpty()) {
-                return entry.getValue().get(0);
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    permit.transferred(read);
+                }
+                return read;
+            } catch (IOException e) {
+                permit.release(isCongestionFailure(e));
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                permit.release();
             }
         }
-        return null;
     }
 }
@@ -2,14 +2,25 @@ package team.terrafirmagreg.autopack.core.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 public class WebGetResponse implements AutoCloseable {
     private final InputStream inputStream;
     private final long streamSize;
+    private final int status;
+    private final Map<String, List<String>> headers;
 
     public WebGetResponse(InputStream inputStream, long streamSize) {
+        this(inputStream, streamSize, 200, Collections.emptyMap());
+    }
+
+    public WebGetResponse(InputStream inputStream, long streamSize, int status, Map<String, List<String>> headers) {
         this.inputStream = inputStream;
         this.streamSize = streamSize;
+        this.status = status;
+        this.headers = headers;
     }
 
     public InputStream getInputStream() {
@@ -20,6 +31,23 @@ public class WebGetResponse implements AutoCloseable {
         return streamSize;
     }
 
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the first value of the response header with the given name, ignoring case, or null if absent
+     */
+    public String getHeader(String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (entry.getKey() != null && entry.getKey().equalsIgnoreCase(name)
+                && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
     @Override
     public void close() throws IOException {
         inputStream.close();
@@ -0,0 +1,29 @@
+package team.terrafirmagreg.autopack.util;
+
+import java.awt.GraphicsEnvironment;
+
+/**
+ * Decides for the platforms whether Director runs without a UI.
+ * <p>
+ * Setting the {@value #PROPERTY} system property to {@code true} selects strict headless mode, in which not a single
+ * AWT or Swing class is initialized, not even to ask AWT whether a display is available. Setting it to {@code false}
+ * forces the UI.
+ */
+public final class Headless {
+    public static final String PROPERTY = "autopack.headless";
+
+    private Headless() {
+    }
+
+    public static boolean detect() {
+        String forced = System.getProperty(PROPERTY);
+        if (forced != null && !forced.trim().isEmpty()) {
+            return Boolean.parseBoolean(forced.trim());
+        }
+        // Dedicated servers mostly set this already, AWT would only read it back after initializing itself
+        if (Boolean.parseBoolean(System.getProperty("java.awt.headless"))) {
+            return true;
+        }
+        return GraphicsEnvironment.isHeadless();
+    }
+}
@@ -0,0 +1,129 @@
+package team.terrafirmagreg.autopack;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import team.terrafirmagreg.autopack.core.cache.WarmStartManifest;
+import team.terrafirmagreg.autopack.testsupport.TestPlatform;
+import team.terrafirmagreg.autopack.util.Headless;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectorHeadlessTest {
+    private static final String STARTUP_PREFIX = "startup-millis ";
+    private static final String INITIALIZING_PREFIX = "Initializing '";
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Runs a whole installation in a fresh JVM, since the test JVM itself may have initialized AWT already, and
+     * reports its startup time next to the classes it initialized.
+     */
+    @Test
+    @Timeout(120)
+    void strictHeadlessRunNeverInitializesAwtOrSwing() throws Exception {
+        writeModpackConfiguration();
+
+        String output = launch("class-init.log", "-D" + WarmStartManifest.ENABLED_PROPERTY + "=false");
+
+        List<String> initialized = initializedClasses("class-init.log").stream()
+            .filter(name -> name.startsWith("java/awt/") || name.startsWith("javax/swing/")
+                || name.startsWith("sun/awt/") || name.startsWith("com/formdev/flatlaf/"))
+            .collect(Collectors.toList());
+        assertTrue(initialized.isEmpty(), "Initialized in strict headless mode: " + initialized);
+
+        String startup = output.lines().filter(line -> line.startsWith(STARTUP_PREFIX)).findFirst().orElse(null);
+        assertTrue(startup != null, output);
+        System.out.println("Strict headless run took " + startup.substring(STARTUP_PREFIX.length()) + " ms");
+    }
+
+    @Test
+    @Timeout(120)
+    void warmStartNeverInitializesJackson() throws Exception {
+        writeModpackConfiguration();
+        launch("cold-init.log");
+
+        String output = launch("warm-init.log");
+
+        assertTrue(output.contains("skipping all checks"), output);
+        List<String> initialized = initializedClasses("warm-init.log").stream()
+            .filter(name -> name.startsWith("com/fasterxml/jackson/"))
+            .collect(Collectors.toList());
+        assertTrue(initialized.isEmpty(), "Initialized on a warm start: " + initialized);
+    }
+
+    private void writeModpackConfiguration() throws IOException {
+        Path config = Files.createDirectories(tempDir.resolve("config").resolve("mod-director"));
+        Files.write(config.resolve("modpack.json"),
+            "{\"packName\": \"Headless\", \"checkStopModReposts\": false}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the output of a strict headless run in a fresh JVM which logs the classes it initialized to the file
+     */
+    private String launch(String classInitLog, String... properties) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-D" + Headless.PROPERTY + "=true");
+        command.addAll(Arrays.asList(properties));
+        command.add("-Xlog:class+init=info:file=" + classInitLog);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(HeadlessLaunch.class.getName());
+        command.add(tempDir.toString());
+        Process process = new ProcessBuilder(command).directory(tempDir.toFile()).redirectErrorStream(true).start();
+
+        String output;
+        try (InputStream stream = process.getInputStream()) {
+            output = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertEquals(0, process.waitFor(), output);
+        return output;
+    }
+
+    private List<String> initializedClasses(String classInitLog) throws IOException {
+        return Files.readAllLines(tempDir.resolve(classInitLog)).stream()
+            .map(DirectorHeadlessTest::initializedClass)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+
+    private static String initializedClass(String logLine) {
+        int start = logLine.indexOf(INITIALIZING_PREFIX);
+        if (start < 0) {
+            return null;
+        }
+        start += INITIALIZING_PREFIX.length();
+        return logLine.substring(start, logLine.indexOf('\'', start));
+    }
+
+    public static final class HeadlessLaunch {
+        public static void main(String[] args) throws Exception {
+            long start = System.nanoTime();
+            TestPlatform platform = new TestPlatform(Paths.get(args[0])) {
+                @Override
+                public boolean headless() {
+                    return Headless.detect();
+                }
+            };
+            boolean success = new Director(platform).call();
+            System.out.println(STARTUP_PREFIX + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            System.exit(success ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package team.terrafirmagreg.autopack.core.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import team.terrafirmagreg.autopack.testsupport.TestPlatform;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArtifactStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void storedFileIsFoundUnderEveryHash() throws Exception {
+        ArtifactStore store = new ArtifactStore(tempDir.resolve("store"), new TestPlatform(tempDir).logger());
+        Path file = tempDir.resolve("mod.jar");
+        Files.write(file, "content".getBytes());
+        Map<String, String> hashes = new LinkedHashMap<>();
+        hashes.put("SHA-1", "040F06FD774092478D450774F5BA30C5DA78ACC8");
+        hashes.put("MD5", "9a0364b9e99bb480dd25e1f0284c8555");
+
+        store.store(file, hashes);
+
+        assertEquals(1, store.candidates(Collections.singletonMap("MD5", "9A0364B9E99BB480DD25E1F0284C8555")).size());
+        Path stored = store.candidates(Collections.singletonMap("SHA-1", hashes.get("SHA-1"))).get(0);
+        assertEquals(tempDir.resolve("store").resolve("sha-1").resolve("04")
+            .resolve("040f06fd774092478d450774f5ba30c5da78acc8"), stored);
+
+        Path target = tempDir.resolve("other-instance").resolve("mods").resolve("mod.jar");
+        Files.createDirectories(target.getParent());
+        store.install(stored, target);
+        assertArrayEquals("content".getBytes(), Files.readAllBytes(target));
+    }
+
+    @Test
+    void hashesCannotEscapeTheStore() throws Exception {
+        ArtifactStore store = new ArtifactStore(tempDir.resolve("store"), new TestPlatform(tempDir).logger());
+        Path file = tempDir.resolve("mod.jar");
+        Files.write(file, "content".getBytes());
+
+        store.store(file, Collections.singletonMap("../..", "../../escaped"));
+
+        assertTrue(store.candidates(Collections.singletonMap("../..", "../../escaped")).isEmpty());
+        assertTrue(Files.notExists(tempDir.resolve("store")));
+    }
+}
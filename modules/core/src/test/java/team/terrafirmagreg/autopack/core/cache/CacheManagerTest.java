@@ -0,0 +1,65 @@
+package team.terrafirmagreg.autopack.core.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import team.terrafirmagreg.autopack.testsupport.TestPlatform;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheManagerTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void leastRecentlyUsedFilesAreEvictedUntilTheBudgetFits() throws Exception {
+        ArtifactStore store = new ArtifactStore(tempDir.resolve("store"), new TestPlatform(tempDir).logger());
+        Path oldest = storeFile(store, "aaaaaaaa", 3 * DAY);
+        Path used = storeFile(store, "bbbbbbbb", 2 * DAY);
+        Path newest = storeFile(store, "cccccccc", DAY);
+        // Installing the file touches its marker, which makes it the most recently used one
+        store.install(used, tempDir.resolve("installed.jar"));
+
+        long freed = new CacheManager(store, 2048, 30 * DAY, new TestPlatform(tempDir).logger()).collect();
+
+        assertEquals(1024, freed);
+        assertFalse(Files.exists(oldest));
+        assertTrue(Files.exists(used));
+        assertTrue(Files.exists(newest));
+    }
+
+    @Test
+    void leasedFilesAreNeverEvicted() throws Exception {
+        ArtifactStore store = new ArtifactStore(tempDir.resolve("store"), new TestPlatform(tempDir).logger());
+        Path expired = storeFile(store, "aaaaaaaa", 100 * DAY);
+        Path leased = storeFile(store, "bbbbbbbb", 100 * DAY);
+        CacheManager manager = new CacheManager(store, 0, 30 * DAY, new TestPlatform(tempDir).logger());
+
+        try (ArtifactStore.Lease ignored = store.lease(leased)) {
+            manager.collect();
+            assertFalse(Files.exists(expired));
+            assertTrue(Files.exists(leased));
+        }
+
+        manager.collect();
+        assertFalse(Files.exists(leased));
+    }
+
+    private Path storeFile(ArtifactStore store, String hash, long age) throws Exception {
+        Path file = tempDir.resolve(hash + ".jar");
+        Files.write(file, new byte[1024]);
+        store.store(file, Collections.singletonMap("MD5", hash));
+        Path stored = store.candidates(Collections.singletonMap("MD5", hash)).get(0);
+        Files.setLastModifiedTime(stored, FileTime.fromMillis(System.currentTimeMillis() - age));
+        return stored;
+    }
+}
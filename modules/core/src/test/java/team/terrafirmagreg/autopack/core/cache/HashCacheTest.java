@@ -0,0 +1,77 @@
+package team.terrafirmagreg.autopack.core.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import team.terrafirmagreg.autopack.core.configuration.RemoteModMetadata;
+import team.terrafirmagreg.autopack.core.util.HashResult;
+import team.terrafirmagreg.autopack.testsupport.TestPlatform;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void unchangedStatTupleIsAnsweredFromCache() throws Exception {
+        TestPlatform platform = new TestPlatform(tempDir);
+        HashCache cache = new HashCache(tempDir.resolve(HashCache.FILE_NAME), platform.logger());
+        Path file = tempDir.resolve("mod.jar");
+        Files.write(file, "hello".getBytes());
+        FileTime modified = Files.getLastModifiedTime(file);
+
+        RemoteModMetadata metadata = metadataWithMd5("5d41402abc4b2a76b9719d911017c592");
+        assertEquals(HashResult.MATCHED, metadata.checkHashes(file, platform, cache));
+
+        // Same size and modification time, so the cached hashes are trusted and the file is not read again
+        Files.write(file, "jello".getBytes());
+        Files.setLastModifiedTime(file, modified);
+        assertEquals(HashResult.MATCHED, metadata.checkHashes(file, platform, cache));
+
+        // A changed size invalidates the entry
+        Files.write(file, "hello!".getBytes());
+        Files.setLastModifiedTime(file, modified);
+        assertEquals(HashResult.UNMATCHED, metadata.checkHashes(file, platform, cache));
+    }
+
+    @Test
+    void savedEntriesSurviveReload() throws Exception {
+        TestPlatform platform = new TestPlatform(tempDir);
+        Path cacheFile = tempDir.resolve(".cache").resolve(HashCache.FILE_NAME);
+        Path file = tempDir.resolve("mod.jar");
+        Files.write(file, "hello".getBytes());
+
+        HashCache cache = new HashCache(cacheFile, platform.logger());
+        assertEquals(HashResult.MATCHED,
+            metadataWithMd5("5d41402abc4b2a76b9719d911017c592").checkHashes(file, platform, cache));
+        cache.save();
+        assertTrue(Files.isRegularFile(cacheFile));
+
+        HashCache reloaded = new HashCache(cacheFile, platform.logger());
+        Map<String, String> hashes = reloaded.lookup(file, Files.readAttributes(file, BasicFileAttributes.class));
+        assertNotNull(hashes);
+        assertEquals("5d41402abc4b2a76b9719d911017c592", hashes.get("MD5"));
+
+        Files.write(file, "changed content".getBytes());
+        assertNull(reloaded.lookup(file, Files.readAttributes(file, BasicFileAttributes.class)));
+    }
+
+    private static RemoteModMetadata metadataWithMd5(String md5) {
+        LinkedHashMap<String, String> hashes = new LinkedHashMap<>();
+        hashes.put("MD5", md5);
+        return RemoteModMetadata.builder()
+            .hashes(hashes)
+            .build();
+    }
+}
@@ -0,0 +1,93 @@
+package team.terrafirmagreg.autopack.core.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import team.terrafirmagreg.autopack.core.configuration.ConfigurationController;
+import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
+import team.terrafirmagreg.autopack.core.configuration.RemoteModInformation;
+import team.terrafirmagreg.autopack.core.configuration.type.CurseRemoteMod;
+import team.terrafirmagreg.autopack.core.configuration.type.ModrinthRemoteMod;
+import team.terrafirmagreg.autopack.testsupport.TestPlatform;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RemoteInformationCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resolvedInformationIsServedAfterReload() throws Exception {
+        TestPlatform platform = new TestPlatform(tempDir);
+        Path cacheFile = tempDir.resolve(RemoteInformationCache.FILE_NAME);
+
+        CurseRemoteMod curse = curseMod(1, 11);
+        assertTrue(curse.importInformation(ConfigurationController.OBJECT_MAPPER.readTree(
+            "{\"id\":11,\"modId\":1,\"displayName\":\"First\",\"fileName\":\"first.jar\","
+                + "\"downloadUrl\":\"https://edge.example.com/first.jar\",\"fileLength\":4}")));
+        ModrinthRemoteMod modrinth = modrinthMod("proj0001", "ver00001");
+        assertTrue(modrinth.importInformation(ConfigurationController.OBJECT_MAPPER.readTree(
+            "{\"title\":\"Second Mod\",\"version\":{\"id\":\"ver00001\",\"project_id\":\"proj0001\","
+                + "\"files\":[{\"url\":\"https://cdn.example.com/second.jar\",\"filename\":\"second.jar\",\"size\":4}]}}")));
+
+        RemoteInformationCache cache = new RemoteInformationCache(cacheFile, platform.logger());
+        cache.record(Arrays.<RemoteMod>asList(curse, modrinth));
+        cache.save();
+
+        CurseRemoteMod freshCurse = curseMod(1, 11);
+        ModrinthRemoteMod freshModrinth = modrinthMod("proj0001", "ver00001");
+        RemoteInformationCache reloaded = new RemoteInformationCache(cacheFile, platform.logger());
+
+        assertEquals(2, reloaded.apply(Arrays.<RemoteMod>asList(freshCurse, freshModrinth)));
+
+        // Both answer without any network access
+        RemoteModInformation curseInformation = freshCurse.queryInformation();
+        assertEquals("first.jar", curseInformation.targetFilename());
+        assertEquals("https://edge.example.com/first.jar", freshCurse.remoteUrl());
+        RemoteModInformation modrinthInformation = freshModrinth.queryInformation();
+        assertEquals("Second Mod", modrinthInformation.displayName());
+        assertEquals("second.jar", modrinthInformation.targetFilename());
+    }
+
+    @Test
+    void modsWithMutableRemoteFilesAreNotCached() {
+        assertNull(modrinthMod("proj0001", "1.20.1-4.2.0").informationCacheKey());
+    }
+
+    @Test
+    void informationForAnotherFileIsRejected() throws Exception {
+        TestPlatform platform = new TestPlatform(tempDir);
+        Path cacheFile = tempDir.resolve(RemoteInformationCache.FILE_NAME);
+        Files.write(cacheFile, ("{\"version\":1,\"entries\":{\"curseforge:1:11\":{\"lastUsed\":0,\"information\":"
+            + "{\"id\":12,\"modId\":1,\"fileName\":\"other.jar\",\"downloadUrl\":\"https://edge.example.com/other.jar\"}}}}")
+            .getBytes(StandardCharsets.UTF_8));
+
+        CurseRemoteMod curse = curseMod(1, 11);
+        RemoteInformationCache cache = new RemoteInformationCache(cacheFile, platform.logger());
+
+        assertEquals(0, cache.apply(Collections.<RemoteMod>singletonList(curse)));
+        assertNull(curse.getInformation());
+    }
+
+    private static CurseRemoteMod curseMod(int addonId, int fileId) {
+        return CurseRemoteMod.builder()
+            .addonId(addonId)
+            .fileId(fileId)
+            .build();
+    }
+
+    private static ModrinthRemoteMod modrinthMod(String addonId, String fileId) {
+        return ModrinthRemoteMod.builder()
+            .addonId(addonId)
+            .fileId(fileId)
+            .build();
+    }
+}
@@ -0,0 +1,110 @@
+package team.terrafirmagreg.autopack.core.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import team.terrafirmagreg.autopack.testsupport.TestPlatform;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WarmStartManifestTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void matchesUntilTheConfigurationChanges() throws Exception {
+        Path config = Files.createDirectories(tempDir.resolve("config"));
+        Files.write(config.resolve("jei.curse.json"), "{\"addonId\": 1}".getBytes());
+        Files.createDirectories(config.resolve(".cache"));
+
+        writeManifest("env");
+        assertTrue(manifest("env").matches());
+
+        // Director's own caches are not configuration
+        Files.write(config.resolve(".cache").resolve(HashCache.FILE_NAME), "{}".getBytes());
+        assertTrue(manifest("env").matches());
+
+        Files.write(config.resolve("jei.curse.json"), "{\"addonId\": 2}".getBytes());
+        assertFalse(manifest("env").matches());
+    }
+
+    @Test
+    void changedLockFileOrEnvironmentDoesNotMatch() throws Exception {
+        Files.createDirectories(tempDir.resolve("config"));
+        writeManifest("env");
+
+        assertFalse(manifest("other").matches());
+        Files.write(tempDir.resolve("pakku-lock.json"), "{}".getBytes());
+        assertFalse(manifest("env").matches());
+    }
+
+    @Test
+    void watchedFilesAreComparedBySizeAndModificationTime() throws Exception {
+        Path mods = Files.createDirectories(tempDir.resolve("mods"));
+        Path jar = mods.resolve("jei.jar");
+        Files.write(jar, "jar".getBytes());
+        FileTime modified = FileTime.fromMillis(1_000_000);
+        Files.setLastModifiedTime(jar, modified);
+
+        WarmStartManifest manifest = manifest("env");
+        manifest.watch(jar);
+        manifest.watch(mods.resolve("jei.jar.disabled-by-mod-director"));
+        manifest.write();
+        assertTrue(manifest("env").matches());
+
+        Files.write(jar, "jaz".getBytes());
+        Files.setLastModifiedTime(jar, modified);
+        assertTrue(manifest("env").matches());
+
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(2_000_000));
+        assertFalse(manifest("env").matches());
+
+        Files.setLastModifiedTime(jar, modified);
+        Files.write(mods.resolve("jei.jar.disabled-by-mod-director"), "disabled".getBytes());
+        assertFalse(manifest("env").matches());
+    }
+
+    @Test
+    void watchedDirectoriesNoticeNewFiles() throws Exception {
+        Path mods = Files.createDirectories(tempDir.resolve("mods"));
+        Files.write(mods.resolve("jei.jar"), "jar".getBytes());
+
+        WarmStartManifest manifest = manifest("env");
+        manifest.watchDirectory(mods);
+        manifest.write();
+        assertTrue(manifest("env").matches());
+
+        Files.write(mods.resolve("jei-old.jar"), "jar".getBytes());
+        assertFalse(manifest("env").matches());
+    }
+
+    @Test
+    void remoteConfigurationsAreNeverSkipped() throws Exception {
+        Path config = Files.createDirectories(tempDir.resolve("config"));
+        Files.write(config.resolve("pack.remote.json"), "{}".getBytes());
+
+        writeManifest("env");
+
+        assertFalse(Files.exists(tempDir.resolve(WarmStartManifest.FILE_NAME)));
+        assertFalse(manifest("env").matches());
+    }
+
+    private void writeManifest(String environment) {
+        manifest(environment).write();
+    }
+
+    private WarmStartManifest manifest(String environment) {
+        return new WarmStartManifest(
+            tempDir.resolve(WarmStartManifest.FILE_NAME),
+            tempDir.resolve("config"),
+            tempDir.resolve("pakku-lock.json"),
+            environment,
+            new TestPlatform(tempDir).logger()
+        );
+    }
+}
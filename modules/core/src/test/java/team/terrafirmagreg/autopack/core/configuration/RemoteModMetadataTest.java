@@ -3,11 +3,13 @@ package team.terrafirmagreg.autopack.core.configuration;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import team.terrafirmagreg.autopack.core.util.HashResult;
+import team.terrafirmagreg.autopack.core.util.MultiDigest;
 import team.terrafirmagreg.autopack.testsupport.TestPlatform;
 import team.terrafirmagreg.autopack.util.Side;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.LinkedHashMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -85,6 +87,76 @@ class RemoteModMetadataTest {
         assertEquals(HashResult.UNKNOWN, metadata.checkHashes(file, new TestPlatform(dir)));
     }
 
+    @Test
+    void allConfiguredAlgorithmsMustMatch(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("mod.jar");
+        Files.write(file, "hello".getBytes());
+
+        LinkedHashMap<String, String> hashes = new LinkedHashMap<>();
+        hashes.put("SHA-1", "aaf4c61ddcc5e8a2dabede0f3b482cd9aea9434d");
+        hashes.put("MD5", "5d41402abc4b2a76b9719d911017c592");
+        RemoteModMetadata metadata = RemoteModMetadata.builder()
+            .hashes(hashes)
+            .build();
+
+        assertEquals(HashResult.MATCHED, metadata.checkHashes(file, new TestPlatform(dir)));
+
+        hashes.put("MD5", "00000000000000000000000000000000");
+        assertEquals(HashResult.UNMATCHED, metadata.checkHashes(file, new TestPlatform(dir)));
+    }
+
+    @Test
+    void largeFileIsHashedInChunks(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("large.jar");
+        byte[] data = new byte[300 * 1024 + 17];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Files.write(file, data);
+
+        LinkedHashMap<String, String> hashes = new LinkedHashMap<>();
+        hashes.put("SHA-256", MultiDigest.toHex(MessageDigest.getInstance("SHA-256").digest(data)));
+        RemoteModMetadata metadata = RemoteModMetadata.builder()
+            .hashes(hashes)
+            .build();
+
+        assertEquals(HashResult.MATCHED, metadata.checkHashes(file, new TestPlatform(dir)));
+    }
+
+    @Test
+    void streamedDigestIsVerifiedWithoutReadingFile() {
+        LinkedHashMap<String, String> hashes = new LinkedHashMap<>();
+        hashes.put("MD5", "5d41402abc4b2a76b9719d911017c592");
+        RemoteModMetadata metadata = RemoteModMetadata.builder()
+            .hashes(hashes)
+            .build();
+        TestPlatform platform = new TestPlatform(tempDir);
+
+        MultiDigest digest = metadata.createDigest(platform);
+        byte[] data = "hello".getBytes();
+        digest.update(data, 0, data.length);
+        digest.finish();
+
+        assertEquals(HashResult.MATCHED, metadata.checkDigest(digest, platform));
+    }
+
+    @Test
+    void streamedDigestMismatchReturnsUnmatched() {
+        LinkedHashMap<String, String> hashes = new LinkedHashMap<>();
+        hashes.put("MD5", "5d41402abc4b2a76b9719d911017c592");
+        RemoteModMetadata metadata = RemoteModMetadata.builder()
+            .hashes(hashes)
+            .build();
+        TestPlatform platform = new TestPlatform(tempDir);
+
+        MultiDigest digest = metadata.createDigest(platform);
+        byte[] data = "other".getBytes();
+        digest.update(data, 0, data.length);
+        digest.finish();
+
+        assertEquals(HashResult.UNMATCHED, metadata.checkDigest(digest, platform));
+    }
+
     @Test
     void shouldTryInstallWhenSideMatches() {
         RemoteModMetadata metadata = RemoteModMetadata.builder()
@@ -0,0 +1,123 @@
+package team.terrafirmagreg.autopack.core.configuration.type;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
+import team.terrafirmagreg.autopack.core.configuration.RemoteModInformation;
+import team.terrafirmagreg.autopack.logging.JavaLogger;
+import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CurseBatchResolverTest {
+    private static final LoggerDelegate LOGGER = new JavaLogger(Logger.getLogger("Director-Test"));
+
+    private HttpServer server;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private volatile int primaryStatus = 200;
+    private volatile String primaryBody;
+    private volatile String secondaryBody;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/primary/mods/files", exchange -> respond(exchange, primaryStatus, primaryBody));
+        server.createContext("/secondary/mods/files", exchange -> respond(exchange, 200, secondaryBody));
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void resolvesAllModsWithOneRequest() throws Exception {
+        primaryBody = "{\"data\":[" + file(11, 1, "first.jar") + "," + file(22, 2, "second.jar") + "]}";
+
+        CurseRemoteMod first = mod(1, 11);
+        CurseRemoteMod second = mod(2, 22);
+
+        resolver().resolve(Arrays.<RemoteMod>asList(first, second));
+
+        assertEquals(Collections.singletonList("POST /primary {\"fileIds\":[11,22]}"), requests);
+        RemoteModInformation information = second.queryInformation();
+        assertEquals("second.jar", information.targetFilename());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void onlyMissingFilesAreRequestedFromTheNextMirror() {
+        primaryBody = "{\"data\":[" + file(11, 1, "first.jar") + "]}";
+        secondaryBody = "{\"data\":[" + file(22, 2, "second.jar") + "]}";
+
+        CurseRemoteMod first = mod(1, 11);
+        CurseRemoteMod second = mod(2, 22);
+        CurseRemoteMod missing = mod(3, 33);
+
+        resolver().resolve(Arrays.<RemoteMod>asList(first, second, missing));
+
+        assertEquals(Arrays.asList(
+            "POST /primary {\"fileIds\":[11,22,33]}",
+            "POST /secondary {\"fileIds\":[22,33]}"
+        ), requests);
+        assertNotNull(first.getInformation());
+        assertNotNull(second.getInformation());
+        assertNull(missing.getInformation());
+    }
+
+    @Test
+    void fallsBackToNextMirrorAndRejectsForeignFiles() {
+        primaryStatus = 503;
+        primaryBody = "{}";
+        secondaryBody = "{\"data\":[" + file(11, 9, "other.jar") + "]}";
+
+        CurseRemoteMod mod = mod(1, 11);
+
+        resolver().resolve(Collections.<RemoteMod>singletonList(mod));
+
+        assertEquals(2, requests.size());
+        assertNull(mod.getInformation());
+    }
+
+    private CurseBatchResolver resolver() {
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        return new CurseBatchResolver(Arrays.asList(base + "/primary", base + "/secondary"), LOGGER);
+    }
+
+    private static CurseRemoteMod mod(int addonId, int fileId) {
+        return CurseRemoteMod.builder()
+            .addonId(addonId)
+            .fileId(fileId)
+            .build();
+    }
+
+    private static String file(int id, int modId, String fileName) {
+        return "{\"id\":" + id + ",\"modId\":" + modId + ",\"displayName\":\"" + fileName + "\",\"fileName\":\""
+            + fileName + "\",\"downloadUrl\":\"https://edge.example.com/" + fileName + "\",\"fileLength\":4}";
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(exchange.getRequestMethod() + " " + path.substring(0, path.indexOf("/mods")) + " " + request);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
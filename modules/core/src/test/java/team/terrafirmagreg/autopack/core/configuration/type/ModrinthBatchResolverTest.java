@@ -0,0 +1,152 @@
+package team.terrafirmagreg.autopack.core.configuration.type;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import team.terrafirmagreg.autopack.core.configuration.ConfigurationController;
+import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
+import team.terrafirmagreg.autopack.core.configuration.RemoteModInformation;
+import team.terrafirmagreg.autopack.logging.JavaLogger;
+import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModrinthBatchResolverTest {
+    private static final LoggerDelegate LOGGER = new JavaLogger(Logger.getLogger("Director-Test"));
+
+    private HttpServer server;
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private volatile String versionsBody;
+    private volatile String projectsBody;
+    private volatile int status = 200;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v2/versions", exchange -> respond(exchange, versionsBody));
+        server.createContext("/v2/projects", exchange -> respond(exchange, projectsBody));
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void resolvesAllModsWithTwoRequests() throws Exception {
+        versionsBody = "[" + version("ver00001", "proj0001", "first.jar") + ","
+            + version("ver00002", "proj0002", "second.jar") + "]";
+        projectsBody = "[" + project("proj0001", "first", "First Mod") + ","
+            + project("proj0002", "second", "Second Mod") + "]";
+
+        ModrinthRemoteMod first = mod("proj0001", "ver00001");
+        ModrinthRemoteMod second = mod("second", "ver00002");
+
+        resolver().resolve(Arrays.<RemoteMod>asList(first, second));
+
+        assertEquals(2, requests.size());
+        assertTrue(requests.get(0).startsWith("/v2/versions?ids=[\"ver00001\",\"ver00002\"]"));
+        assertTrue(first.isResolved());
+        assertTrue(second.isResolved());
+
+        RemoteModInformation information = second.queryInformation();
+        assertEquals("Second Mod", information.displayName());
+        assertEquals("second.jar", information.targetFilename());
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    void skipsVersionNumbersAndMismatchedProjects() {
+        versionsBody = "[" + version("ver00001", "other001", "first.jar") + "]";
+        projectsBody = "[" + project("proj0001", "first", "First Mod") + "]";
+
+        ModrinthRemoteMod mismatched = mod("proj0001", "ver00001");
+        ModrinthRemoteMod versionNumber = mod("proj0001", "1.20.1-4.2.0");
+
+        resolver().resolve(Arrays.<RemoteMod>asList(mismatched, versionNumber));
+
+        assertFalse(mismatched.isResolved());
+        assertFalse(versionNumber.isResolved());
+        assertFalse(requests.get(0).contains("1.20.1-4.2.0"));
+    }
+
+    @Test
+    void versionNumbersShapedLikeIdsAreOnlyUsedWhenTheProjectConfirmsThem() throws Exception {
+        // Modrinth doesn't know the version number as an id, and the other version doesn't name its project
+        versionsBody = "[" + version("ver00002", null, "second.jar") + "]";
+        projectsBody = "[" + project("proj0001", "first", "First Mod") + "]";
+
+        ModrinthRemoteMod versionNumber = mod("proj0001", "20240101");
+        ModrinthRemoteMod unconfirmed = mod("proj0001", "ver00002");
+
+        resolver().resolve(Arrays.<RemoteMod>asList(versionNumber, unconfirmed));
+
+        assertTrue(requests.get(0).contains("20240101"));
+        assertFalse(versionNumber.isResolved());
+        assertFalse(unconfirmed.isResolved());
+
+        // Queried on its own, the version number resolves to a version with another id which must not be cached
+        versionNumber.resolved(ConfigurationController.OBJECT_MAPPER.readValue(
+            version("abcd1234", "proj0001", "first.jar"), ModrinthRemoteMod.ModrinthAddonFileInformation.class),
+            "First Mod");
+        assertNull(versionNumber.exportInformation());
+    }
+
+    @Test
+    void leavesModsUnresolvedWhenBulkRequestFails() {
+        status = 500;
+        versionsBody = "[]";
+
+        ModrinthRemoteMod mod = mod("proj0001", "ver00001");
+
+        resolver().resolve(Collections.<RemoteMod>singletonList(mod));
+
+        assertFalse(mod.isResolved());
+        assertEquals(1, requests.size());
+    }
+
+    private ModrinthBatchResolver resolver() {
+        return new ModrinthBatchResolver("http://127.0.0.1:" + server.getAddress().getPort() + "/v2", LOGGER);
+    }
+
+    private static ModrinthRemoteMod mod(String addonId, String fileId) {
+        return ModrinthRemoteMod.builder()
+            .addonId(addonId)
+            .fileId(fileId)
+            .build();
+    }
+
+    private static String version(String id, String projectId, String filename) {
+        return "{\"id\":\"" + id + "\"" + (projectId != null ? ",\"project_id\":\"" + projectId + "\"" : "")
+            + ",\"files\":[{\"url\":\"https://cdn.example.com/" + filename + "\",\"filename\":\"" + filename + "\",\"size\":4}]}";
+    }
+
+    private static String project(String id, String slug, String title) {
+        return "{\"id\":\"" + id + "\",\"slug\":\"" + slug + "\",\"title\":\"" + title + "\"}";
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        requests.add(URLDecoder.decode(exchange.getRequestURI().getRawPath() + "?" + exchange.getRequestURI().getRawQuery(),
+            "UTF-8"));
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -1,17 +1,34 @@
 package team.terrafirmagreg.autopack.core.configuration.type;
 
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import team.terrafirmagreg.autopack.Director;
+import team.terrafirmagreg.autopack.core.configuration.InstallationPolicy;
 import team.terrafirmagreg.autopack.core.configuration.RemoteModInformation;
 import team.terrafirmagreg.autopack.core.exception.InstallException;
+import team.terrafirmagreg.autopack.core.manage.NoOpProgressCallback;
+import team.terrafirmagreg.autopack.testsupport.DirectorTestSupport;
 
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class UrlRemoteModTest {
 
+    @TempDir
+    Path tempDir;
+
     @Test
     void queryInformationUsesExplicitFileName() throws Exception {
         UrlRemoteMod mod = UrlRemoteMod.builder()
@@ -65,4 +82,53 @@ class UrlRemoteModTest {
 
         assertTrue(error.getMessage().contains("missing"));
     }
+
+    @Test
+    void performInstallFollowsPageAndExtractsStreamedArchive() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("world/level.dat"));
+            zip.write("level".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        byte[] archiveBytes = archive.toByteArray();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        int port = server.getAddress().getPort();
+        server.createContext("/page", exchange -> {
+            byte[] body = "<html><a href=\"/files/world.zip\">download</a></html>".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/files/world.zip", exchange -> {
+            exchange.sendResponseHeaders(200, archiveBytes.length);
+            exchange.getResponseBody().write(archiveBytes);
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            Director director = DirectorTestSupport.create(tempDir);
+            UrlRemoteMod mod = UrlRemoteMod.builder()
+                .url(new URL("http://127.0.0.1:" + port + "/page"))
+                .follows(new String[]{"download"})
+                .installationPolicy(InstallationPolicy.builder()
+                    .extract(true)
+                    .deleteAfterExtract(true)
+                    .build())
+                .build();
+            Path target = tempDir.resolve("world.zip");
+
+            mod.performInstall(target, new NoOpProgressCallback(), director,
+                new RemoteModInformation("world.zip", "world.zip"), null);
+
+            assertEquals("level", new String(Files.readAllBytes(tempDir.resolve("world").resolve("level.dat")),
+                StandardCharsets.UTF_8));
+            assertFalse(Files.exists(target));
+            assertFalse(Files.exists(tempDir.resolve("world.zip.part")));
+        } finally {
+            server.stop(0);
+        }
+    }
 }
@@ -0,0 +1,74 @@
+package team.terrafirmagreg.autopack.core.manage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void directoryIsSnapshottedOnFirstUse() throws Exception {
+        Path mods = Files.createDirectories(tempDir.resolve("mods"));
+        Files.createFile(mods.resolve("a.jar"));
+        Files.createDirectories(mods.resolve("nested.jar"));
+
+        DirectoryIndex index = new DirectoryIndex();
+        assertTrue(index.isRegularFile(mods.resolve("a.jar")));
+        assertFalse(index.isRegularFile(mods.resolve("nested.jar")));
+
+        // Changes behind the back of the index are not seen anymore
+        Files.createFile(mods.resolve("b.jar"));
+        assertFalse(index.isRegularFile(mods.resolve("b.jar")));
+        assertEquals(Collections.singletonList(mods.resolve("a.jar").toAbsolutePath()), index.list(mods));
+    }
+
+    @Test
+    void reportedChangesAreReflected() throws Exception {
+        Path mods = Files.createDirectories(tempDir.resolve("mods"));
+        Files.createFile(mods.resolve("old.jar"));
+        Files.createFile(mods.resolve("other.jar"));
+
+        DirectoryIndex index = new DirectoryIndex();
+        assertEquals(2, index.list(mods).size());
+        index.moved(mods.resolve("old.jar"), mods.resolve("old.jar.disabled-by-mod-director"));
+        index.deleted(mods.resolve("other.jar"));
+
+        assertFalse(index.isRegularFile(mods.resolve("old.jar")));
+        assertTrue(index.isRegularFile(mods.resolve("old.jar.disabled-by-mod-director")));
+        assertEquals(new HashSet<>(Collections.singletonList(
+                mods.resolve("old.jar.disabled-by-mod-director").toAbsolutePath())),
+            new HashSet<>(index.list(mods)));
+    }
+
+    @Test
+    void missingDirectoryIsEmpty() throws Exception {
+        DirectoryIndex index = new DirectoryIndex();
+        Path missing = tempDir.resolve("config");
+
+        assertFalse(index.isRegularFile(missing.resolve("a.toml")));
+        assertTrue(index.list(missing).isEmpty());
+    }
+
+    @Test
+    void lookupsFollowTheCaseSensitivityOfTheFileSystem() throws Exception {
+        Path mods = Files.createDirectories(tempDir.resolve("mods"));
+        Files.createFile(mods.resolve("Mod.jar"));
+
+        DirectoryIndex index = new DirectoryIndex();
+        assertEquals(Files.isRegularFile(mods.resolve("mod.jar")), index.isRegularFile(mods.resolve("mod.jar")));
+        assertEquals(Arrays.asList(true, true), Arrays.asList(
+            index.isRegularFile(mods.resolve("Mod.jar")), index.isRegularFile(mods.resolve("./Mod.jar"))));
+    }
+}
@@ -3,12 +3,14 @@ package team.terrafirmagreg.autopack.core.manage;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import team.terrafirmagreg.autopack.Director;
+import team.terrafirmagreg.autopack.core.cache.ArtifactStore;
 import team.terrafirmagreg.autopack.core.configuration.InstallationPolicy;
 import team.terrafirmagreg.autopack.core.configuration.RemoteMod;
 import team.terrafirmagreg.autopack.core.configuration.RemoteModInformation;
 import team.terrafirmagreg.autopack.core.configuration.RemoteModMetadata;
 import team.terrafirmagreg.autopack.core.exception.InstallException;
 import team.terrafirmagreg.autopack.core.manage.install.InstallableMod;
+import team.terrafirmagreg.autopack.core.util.OfflineException;
 import team.terrafirmagreg.autopack.testsupport.DirectorTestSupport;
 import team.terrafirmagreg.autopack.testsupport.TestRemoteMod;
 
@@ -17,6 +19,7 @@ import java.net.ConnectException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -63,6 +66,26 @@ class InstallControllerTest {
         assertFalse(error.getMessage().contains("("));
     }
 
+    @Test
+    void offlineFailuresAreCollectedInsteadOfReported() throws Exception {
+        Director director = DirectorTestSupport.create(tempDir);
+        TestRemoteMod queried = TestRemoteMod.builder()
+            .name("queried")
+            .queryException(new InstallException("query failed", new OfflineException("api.modrinth.com")))
+            .build();
+        TestRemoteMod downloaded = TestRemoteMod.builder()
+            .name("downloaded")
+            .installException(new InstallException("install failed", new OfflineException("cdn.modrinth.com")))
+            .build();
+
+        runPreInstall(director, queried);
+        runInstall(director, new InstallableMod(downloaded, new RemoteModInformation("Test Mod", "test-mod.jar"),
+            tempDir.resolve("mods").resolve("test-mod.jar")));
+
+        assertTrue(director.getErrors().isEmpty());
+        assertEquals(Arrays.asList(queried, downloaded), new ArrayList<>(director.getOfflineSkippedMods()));
+    }
+
     @Test
     void continueOnFailedDownloadUsesWarningSeverity() throws Exception {
         Director director = DirectorTestSupport.create(tempDir);
@@ -154,6 +177,47 @@ class InstallControllerTest {
         assertTrue(error.getMessage().contains("hash"));
     }
 
+    @Test
+    void artifactStoreIsSharedAcrossInstances() throws Exception {
+        LinkedHashMap<String, String> hashes = new LinkedHashMap<>();
+        hashes.put("MD5", "56f18825a76309ae6391073aeb14f1b3");
+        RemoteModMetadata metadata = RemoteModMetadata.builder()
+            .hashes(hashes)
+            .build();
+        System.setProperty(ArtifactStore.LOCATION_PROPERTY, tempDir.resolve("store").toString());
+        try {
+            Director first = DirectorTestSupport.create(tempDir.resolve("first"));
+            Path firstTarget = tempDir.resolve("first").resolve("mods").resolve("test-mod.jar");
+            TestRemoteMod downloading = TestRemoteMod.builder()
+                .metadata(metadata)
+                .installAction(() -> {
+                    try {
+                        Files.write(firstTarget, "downloaded".getBytes());
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                })
+                .build();
+            runInstall(first, new InstallableMod(downloading, new RemoteModInformation("Test Mod", "test-mod.jar"),
+                firstTarget));
+
+            Director second = DirectorTestSupport.create(tempDir.resolve("second"));
+            Path secondTarget = tempDir.resolve("second").resolve("mods").resolve("test-mod.jar");
+            TestRemoteMod offline = TestRemoteMod.builder()
+                .metadata(metadata)
+                .installException(new InstallException("should not download", new ConnectException("refused")))
+                .build();
+            runInstall(second, new InstallableMod(offline, new RemoteModInformation("Test Mod", "test-mod.jar"),
+                secondTarget));
+
+            assertTrue(second.getErrors().isEmpty());
+            assertEquals(1, second.getInstalledMods().size());
+            assertEquals("downloaded", new String(Files.readAllBytes(secondTarget)));
+        } finally {
+            System.clearProperty(ArtifactStore.LOCATION_PROPERTY);
+        }
+    }
+
     @Test
     void existingOfflineFileSkipsRemoteQuery() throws Exception {
         Director director = DirectorTestSupport.create(tempDir);
@@ -184,6 +248,120 @@ class InstallControllerTest {
         assertTrue(reinstallMods.isEmpty());
     }
 
+    @Test
+    void onlyModsWithoutOptionalKeyQualifyForPipelinedInstall() throws Exception {
+        Director director = DirectorTestSupport.create(tempDir);
+        TestRemoteMod required = TestRemoteMod.builder()
+            .information(new RemoteModInformation("Required", "required.jar"))
+            .build();
+        TestRemoteMod optional = TestRemoteMod.builder()
+            .information(new RemoteModInformation("Optional", "optional.jar"))
+            .installationPolicy(InstallationPolicy.builder().optionalKey("$").build())
+            .build();
+
+        List<InstallableMod> qualified = new ArrayList<>();
+        List<InstallableMod> freshMods = new ArrayList<>();
+        List<Callable<Void>> tasks = director.getInstallController().createPreInstallTasks(
+            Arrays.asList(required, optional),
+            new ArrayList<>(),
+            freshMods,
+            new ArrayList<>(),
+            (title, info) -> new NoOpProgressCallback(),
+            qualified::add
+        );
+        for (Callable<Void> task : tasks) {
+            task.call();
+        }
+
+        assertEquals(2, freshMods.size());
+        assertEquals(1, qualified.size());
+        assertEquals(required, qualified.get(0).remoteMod());
+    }
+
+    @Test
+    void supersededFilesOfInstalledModsAreRemovedOnceAllChecksCompleted() throws Exception {
+        Director director = DirectorTestSupport.create(tempDir);
+        Path mods = Files.createDirectories(tempDir.resolve("mods"));
+        for (String name : Arrays.asList("jei-1.0.jar", "other-1.0.jar", "kept.jar", "unrelated.jar")) {
+            Files.write(mods.resolve(name), "old".getBytes());
+        }
+
+        TestRemoteMod disabling = TestRemoteMod.builder()
+            .name("jei")
+            .information(new RemoteModInformation("JEI", "jei-2.0.jar"))
+            .installationPolicy(InstallationPolicy.builder().supersede("jei-*.jar").build())
+            .build();
+        TestRemoteMod deleting = TestRemoteMod.builder()
+            .name("other")
+            .information(new RemoteModInformation("Other", "other-2.0.jar"))
+            .installationPolicy(InstallationPolicy.builder()
+                .supersedes(Arrays.asList("other-1.*", "missing-*.jar"))
+                .deleteSuperseded(true)
+                .build())
+            .build();
+        // Already installed, so its pattern must not apply
+        TestRemoteMod excluded = TestRemoteMod.builder()
+            .name("kept")
+            .information(new RemoteModInformation("Kept", "kept.jar"))
+            .installationPolicy(InstallationPolicy.builder().supersede("unrelated*").build())
+            .build();
+
+        List<Callable<Void>> tasks = director.getInstallController().createPreInstallTasks(
+            Arrays.asList(disabling, deleting, excluded),
+            new ArrayList<>(),
+            new ArrayList<>(),
+            new ArrayList<>(),
+            (title, info) -> new NoOpProgressCallback()
+        );
+        tasks.get(0).call();
+        assertTrue(Files.exists(mods.resolve("jei-1.0.jar")));
+        tasks.get(1).call();
+        tasks.get(2).call();
+
+        assertFalse(Files.exists(mods.resolve("jei-1.0.jar")));
+        assertTrue(Files.exists(mods.resolve("jei-1.0.jar.disabled-by-mod-director")));
+        assertFalse(Files.exists(mods.resolve("other-1.0.jar")));
+        assertFalse(Files.exists(mods.resolve("other-1.0.jar.disabled-by-mod-director")));
+        assertTrue(Files.exists(mods.resolve("kept.jar")));
+        assertTrue(Files.exists(mods.resolve("unrelated.jar")));
+    }
+
+    @Test
+    void pipelinedInstallsASupersedePatternMatchesWaitForTheSupersedePass() throws Exception {
+        Director director = DirectorTestSupport.create(tempDir);
+        TestRemoteMod superseding = TestRemoteMod.builder()
+            .name("library")
+            .information(new RemoteModInformation("Library", "library.jar"))
+            .installationPolicy(InstallationPolicy.builder().supersede("addon-*.jar").build())
+            .build();
+        TestRemoteMod matched = TestRemoteMod.builder()
+            .name("addon")
+            .information(new RemoteModInformation("Addon", "addon-2.0.jar"))
+            .build();
+        TestRemoteMod unrelated = TestRemoteMod.builder()
+            .name("unrelated")
+            .information(new RemoteModInformation("Unrelated", "unrelated.jar"))
+            .build();
+
+        List<InstallableMod> qualified = new ArrayList<>();
+        List<Callable<Void>> tasks = director.getInstallController().createPreInstallTasks(
+            Arrays.asList(superseding, matched, unrelated),
+            new ArrayList<>(),
+            new ArrayList<>(),
+            new ArrayList<>(),
+            (title, info) -> new NoOpProgressCallback(),
+            qualified::add
+        );
+        tasks.get(1).call();
+        tasks.get(2).call();
+        assertEquals(1, qualified.size());
+        assertEquals(unrelated, qualified.get(0).remoteMod());
+
+        tasks.get(0).call();
+        assertEquals(3, qualified.size());
+        assertEquals(matched, qualified.get(2).remoteMod());
+    }
+
     @Test
     void markDisabledModsIoFailureAddsWarning() throws Exception {
         Director director = DirectorTestSupport.create(tempDir);
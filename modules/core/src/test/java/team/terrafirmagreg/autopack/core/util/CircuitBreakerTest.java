@@ -0,0 +1,194 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailuresOfTheSameServer() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60_000);
+        URL api = new URL("https://api.modrinth.com/v2/project/a");
+        URL cdn = new URL("https://cdn.modrinth.com/data/a.jar");
+
+        breaker.failed(api);
+        breaker.failed(api);
+        breaker.succeeded(api);
+        breaker.failed(api);
+        breaker.failed(api);
+        assertDoesNotThrow(() -> breaker.check(api));
+
+        breaker.failed(api);
+        assertThrows(CircuitOpenException.class, () -> breaker.check(new URL("https://api.modrinth.com/v2/project/b")));
+        assertDoesNotThrow(() -> breaker.check(cdn));
+    }
+
+    @Test
+    void singleProbeClosesTheBreakerAgain() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 50);
+        URL url = new URL("https://api.curse.tools/v1/cf/mods/1");
+
+        breaker.failed(url);
+        assertThrows(CircuitOpenException.class, () -> breaker.check(url));
+
+        Thread.sleep(100);
+        breaker.check(url);
+        // Only the probe gets through while it is under way
+        assertThrows(CircuitOpenException.class, () -> breaker.check(url));
+
+        breaker.failed(url);
+        assertThrows(CircuitOpenException.class, () -> breaker.check(url));
+
+        Thread.sleep(100);
+        breaker.check(url);
+        breaker.succeeded(url);
+        assertDoesNotThrow(() -> breaker.check(url));
+        assertDoesNotThrow(() -> breaker.check(url));
+    }
+
+    @Test
+    void abandonedProbeLetsTheNextRequestProbe() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 50);
+        URL url = new URL("https://api.curse.tools/v1/cf/mods/1");
+
+        breaker.failed(url);
+        Thread.sleep(100);
+        breaker.check(url);
+        breaker.abandoned(url);
+        assertDoesNotThrow(() -> breaker.check(url));
+        assertThrows(CircuitOpenException.class, () -> breaker.check(url));
+    }
+
+    @Test
+    void hostsAreComparedIndependentlyOfTheDefaultLocale() throws Exception {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            CircuitBreaker breaker = new CircuitBreaker(1, 60_000);
+            breaker.failed(new URL("https://MEDIAFILEZ.FORGECDN.NET/files/1/mod.jar"));
+            assertThrows(CircuitOpenException.class,
+                () -> breaker.check(new URL("https://mediafilez.forgecdn.net/files/2/mod.jar")));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    void skippedRequestsDoNotLowerTheConnectionLimit() throws Exception {
+        URL url = new URL("http://127.0.0.1:1/mod.jar");
+        CircuitBreaker previousBreaker = CircuitBreaker.global();
+        ConcurrencyController previousConcurrency = ConcurrencyController.global();
+        ConcurrencyController concurrency = new ConcurrencyController(Integer.MAX_VALUE, Integer.MAX_VALUE,
+            Collections.emptyMap(), true);
+        CircuitBreaker.setGlobal(new CircuitBreaker(1, 60_000));
+        ConcurrencyController.setGlobal(concurrency);
+        try {
+            int limit = concurrency.currentLimit("127.0.0.1");
+
+            CircuitBreaker.global().failed(url);
+            assertThrows(CircuitOpenException.class, () -> WebClient.get(url, Collections.emptyMap(), RetryPolicy.NONE));
+            assertEquals(limit, concurrency.currentLimit("127.0.0.1"));
+
+            CircuitBreaker.global().succeeded(url);
+            WebClient.setOffline(true);
+            assertThrows(OfflineException.class, () -> WebClient.get(url, Collections.emptyMap(), RetryPolicy.NONE));
+            assertEquals(limit, concurrency.currentLimit("127.0.0.1"));
+        } finally {
+            WebClient.setOffline(false);
+            CircuitBreaker.setGlobal(previousBreaker);
+            ConcurrencyController.setGlobal(previousConcurrency);
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void cancelledHedgeDoesNotCloseTheBreaker() throws Exception {
+        CountDownLatch loserFinished = new CountDownLatch(1);
+        HttpServer mirror = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mirror.createContext("/mod.jar", exchange -> {
+            byte[] body = "mod".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        mirror.start();
+
+        CircuitBreaker previous = CircuitBreaker.global();
+        CircuitBreaker breaker = new CircuitBreaker(1, 50);
+        CircuitBreaker.setGlobal(breaker);
+        // Accepts connections but never answers, like a dead mirror behind a load balancer
+        try (ServerSocket deadMirror = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+            URL dead = new URL("http://127.0.0.1:" + deadMirror.getLocalPort() + "/mod.jar");
+            URL alive = new URL("http://127.0.0.1:" + mirror.getAddress().getPort() + "/mod.jar");
+            breaker.failed(dead);
+            Thread.sleep(100);
+
+            String result = new HedgingPolicy(50).race(Arrays.asList(
+                () -> {
+                    try (WebGetResponse response = WebClient.get(dead, Collections.emptyMap(), RetryPolicy.NONE)) {
+                        return "dead";
+                    } finally {
+                        loserFinished.countDown();
+                    }
+                },
+                () -> {
+                    try (WebGetResponse response = WebClient.get(alive, Collections.emptyMap(), RetryPolicy.NONE)) {
+                        return new String(response.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                    }
+                }));
+            assertEquals("mod", result);
+            loserFinished.await();
+
+            // The cancelled probe is handed back without closing the breaker
+            assertDoesNotThrow(() -> breaker.check(dead));
+            assertThrows(CircuitOpenException.class, () -> breaker.check(dead));
+        } finally {
+            CircuitBreaker.setGlobal(previous);
+            mirror.stop(0);
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void unreachableServerFailsFastOnceOpen() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        URL url = new URL("http://127.0.0.1:" + port + "/mod.jar");
+
+        CircuitBreaker previous = CircuitBreaker.global();
+        CircuitBreaker.setGlobal(new CircuitBreaker(2, 60_000));
+        try {
+            for (int i = 0; i < 2; i++) {
+                ConnectException error = assertThrows(ConnectException.class,
+                    () -> WebClient.get(url, Collections.emptyMap(), RetryPolicy.NONE));
+                assertFalse(error instanceof CircuitOpenException);
+            }
+
+            CircuitOpenException error = assertThrows(CircuitOpenException.class, () -> WebClient.get(url));
+            assertTrue(NetworkExceptions.isConnectivityError(error));
+            assertTrue(NetworkExceptions.describe(error).contains("127.0.0.1"));
+        } finally {
+            CircuitBreaker.setGlobal(previous);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyControllerTest {
+
+    @Test
+    @Timeout(10)
+    void perHostLimitBlocksOnlyThatHost() throws Exception {
+        ConcurrencyController controller = new ConcurrencyController(10, 2, Collections.emptyMap(), false);
+        ConcurrencyController.Permit first = controller.acquire("a.example.com");
+        controller.acquire("a.example.com");
+
+        CompletableFuture<ConcurrencyController.Permit> blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return controller.acquire("a.example.com");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThrows(TimeoutException.class, () -> blocked.get(200, TimeUnit.MILLISECONDS));
+        assertNotNull(controller.acquire("b.example.com"));
+
+        first.release();
+        assertNotNull(blocked.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void configuredDomainLimitCoversSubdomains() {
+        ConcurrencyController controller = new ConcurrencyController(10, 8,
+            Collections.singletonMap("forgecdn.net", 3), false);
+
+        assertEquals(3, controller.currentLimit("edge.forgecdn.net"));
+        assertEquals(8, controller.currentLimit("api.modrinth.com"));
+    }
+
+    @Test
+    void adaptiveLimitGrowsWithThroughputAndHalvesOnCongestion() throws Exception {
+        ConcurrencyController controller = new ConcurrencyController(100, 16, Collections.emptyMap(), true);
+        assertEquals(4, controller.currentLimit("cdn.example.com"));
+
+        for (int i = 0; i < 4; i++) {
+            ConcurrencyController.Permit permit = controller.acquire("cdn.example.com");
+            permit.transferred(1024 * 1024);
+            permit.release();
+        }
+        assertEquals(5, controller.currentLimit("cdn.example.com"));
+
+        controller.acquire("cdn.example.com").release(true);
+        assertEquals(2, controller.currentLimit("cdn.example.com"));
+    }
+
+    @Test
+    @Timeout(10)
+    void tooManyRequestsResponseShrinksHostLimit() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/limited", exchange -> {
+            exchange.sendResponseHeaders(429, -1);
+            exchange.close();
+        });
+        server.start();
+
+        ConcurrencyController previous = ConcurrencyController.global();
+        ConcurrencyController controller = new ConcurrencyController(100, 16, Collections.emptyMap(), true);
+        ConcurrencyController.setGlobal(controller);
+        try {
+            URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/limited");
+            // Every retry would halve the limit again
+            IOException error = assertThrows(IOException.class,
+                () -> WebClient.get(url, Collections.emptyMap(), RetryPolicy.NONE));
+            assertTrue(error.getMessage().contains("429"));
+
+            assertEquals(2, controller.currentLimit("127.0.0.1"));
+            // The failed request must not keep holding its slot
+            ConcurrencyController.Permit first = controller.acquire("127.0.0.1");
+            ConcurrencyController.Permit second = controller.acquire("127.0.0.1");
+            first.release();
+            second.release();
+        } finally {
+            ConcurrencyController.setGlobal(previous);
+            server.stop(0);
+        }
+    }
+}
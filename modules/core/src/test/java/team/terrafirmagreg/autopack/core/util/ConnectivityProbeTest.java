@@ -0,0 +1,83 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectivityProbeTest {
+
+    @Test
+    void reachableServerIsFound() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            URL dead = new URL("http://127.0.0.1:" + closedPort() + "/");
+            URL alive = new URL("http://127.0.0.1:" + server.getLocalPort() + "/api");
+
+            assertTrue(ConnectivityProbe.isAnyReachable(Arrays.asList(dead, alive), 2000));
+        }
+    }
+
+    @Test
+    @Timeout(5)
+    void refusingAndUnknownServersFailWithinTheTimeout() throws Exception {
+        URL dead = new URL("http://127.0.0.1:" + closedPort() + "/");
+        URL unknown = new URL("https://autopack-probe.invalid/");
+
+        long start = System.nanoTime();
+        assertFalse(ConnectivityProbe.isAnyReachable(Arrays.asList(dead, unknown), 500));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+    }
+
+    @Test
+    @Timeout(5)
+    void serverNotAnsweringInTimeIsInconclusive() throws Exception {
+        InetAddress loopback = InetAddress.getByName("127.0.0.1");
+        List<Socket> queued = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, 1, loopback)) {
+            // Fill the accept queue so further connection attempts hang like on a slow link
+            while (true) {
+                Socket socket = new Socket();
+                try {
+                    socket.connect(new InetSocketAddress(loopback, server.getLocalPort()), 200);
+                    queued.add(socket);
+                } catch (SocketTimeoutException e) {
+                    socket.close();
+                    break;
+                }
+            }
+            URL slow = new URL("http://127.0.0.1:" + server.getLocalPort() + "/");
+            URL dead = new URL("http://127.0.0.1:" + closedPort() + "/");
+
+            assertTrue(ConnectivityProbe.isAnyReachable(Arrays.asList(slow, dead), 300));
+        } finally {
+            for (Socket socket : queued) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    void nothingToProbeCountsAsReachable() throws Exception {
+        assertTrue(ConnectivityProbe.isAnyReachable(Collections.emptyList(), 500));
+        assertTrue(ConnectivityProbe.isAnyReachable(Collections.singletonList(new URL("file:/tmp/mod.jar")), 500));
+    }
+
+    private static int closedPort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import team.terrafirmagreg.autopack.core.manage.NoOpProgressCallback;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileDownloaderTest {
+    private static final byte[] CONTENT = new byte[256 * 1024];
+    private static final byte[] LARGE_CONTENT = new byte[(int) FileDownloader.SEGMENTED_THRESHOLD];
+
+    static {
+        new Random(42).nextBytes(CONTENT);
+        new Random(43).nextBytes(LARGE_CONTENT);
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private final List<String> ranges = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger truncatedResponses = new AtomicInteger();
+    private final AtomicInteger truncatedRangeResponses = new AtomicInteger();
+    private volatile String etag = "\"v1\"";
+    private ConcurrencyController previousConcurrency;
+    private RetryPolicy previousRetryPolicy;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        previousConcurrency = ConcurrencyController.global();
+        previousRetryPolicy = RetryPolicy.global();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/file.bin", exchange -> serve(exchange, CONTENT));
+        server.createContext("/large.bin", exchange -> serve(exchange, LARGE_CONTENT));
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        ConcurrencyController.setGlobal(previousConcurrency);
+        RetryPolicy.setGlobal(previousRetryPolicy);
+    }
+
+    @Test
+    void interruptedDownloadResumesFromPartFile() throws Exception {
+        truncatedResponses.set(1);
+        Path target = tempDir.resolve("file.bin");
+        URL url = url();
+
+        // Without retries, like a launcher killed halfway through
+        RetryPolicy.setGlobal(RetryPolicy.NONE);
+        assertThrows(IOException.class, () -> FileDownloader.download(url, target, new NoOpProgressCallback(), null, CONTENT.length));
+        RetryPolicy.setGlobal(previousRetryPolicy);
+        Path part = tempDir.resolve("file.bin" + FileDownloader.PART_SUFFIX);
+        assertTrue(Files.isRegularFile(part));
+        long partial = Files.size(part);
+        assertTrue(partial > 0 && partial < CONTENT.length);
+        assertFalse(Files.exists(target));
+
+        MultiDigest digest = MultiDigest.create(Collections.singletonList("SHA-1"), null);
+        FileDownloader.download(url, target, new NoOpProgressCallback(), digest, CONTENT.length);
+
+        assertEquals(Collections.singletonList("bytes=" + partial + "-"), ranges);
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertEquals(MultiDigest.toHex(MessageDigest.getInstance("SHA-1").digest(CONTENT)), digest.results().get("SHA-1"));
+        assertFalse(Files.exists(part));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void droppedConnectionIsResumedWithinTheSameDownload() throws Exception {
+        truncatedResponses.set(1);
+        Path target = tempDir.resolve("file.bin");
+
+        FileDownloader.download(url(), target, new NoOpProgressCallback(), null, CONTENT.length);
+
+        assertEquals(1, ranges.size());
+        assertTrue(ranges.get(0).matches("bytes=\\d+-"), ranges.toString());
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertFalse(Files.exists(tempDir.resolve("file.bin" + FileDownloader.PART_SUFFIX)));
+    }
+
+    @Test
+    void droppedSegmentIsContinuedFromWhereItBrokeOff() throws Exception {
+        truncatedRangeResponses.set(1);
+        Path target = tempDir.resolve("large.bin");
+
+        FileDownloader.download(largeUrl(), target, new NoOpProgressCallback(), null, LARGE_CONTENT.length, 4);
+
+        // Three segments plus the rest of the one that broke off
+        assertEquals(4, ranges.size());
+        assertArrayEquals(LARGE_CONTENT, Files.readAllBytes(target));
+    }
+
+    @Test
+    void changedRemoteFileRestartsFromTheBeginning() throws Exception {
+        truncatedResponses.set(1);
+        Path target = tempDir.resolve("file.bin");
+        URL url = url();
+        RetryPolicy.setGlobal(RetryPolicy.NONE);
+        assertThrows(IOException.class, () -> FileDownloader.download(url, target, new NoOpProgressCallback(), null, -1));
+        RetryPolicy.setGlobal(previousRetryPolicy);
+
+        etag = "\"v2\"";
+        FileDownloader.download(url, target, new NoOpProgressCallback(), null, -1);
+
+        // The range was requested, but the server ignored it because If-Range did not match anymore
+        assertEquals(1, ranges.size());
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+    }
+
+    @Test
+    void largeFileIsFetchedInConcurrentSegments() throws Exception {
+        Path target = tempDir.resolve("large.bin");
+        URL url = largeUrl();
+
+        MultiDigest digest = MultiDigest.create(Collections.singletonList("SHA-1"), null);
+        FileDownloader.download(url, target, new NoOpProgressCallback(), digest, LARGE_CONTENT.length, 4);
+
+        long segment = LARGE_CONTENT.length / 4;
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i < 4; i++) {
+            expected.add("bytes=" + i * segment + "-" + ((i + 1) * segment - 1));
+        }
+        List<String> requested = new ArrayList<>(ranges);
+        Collections.sort(requested);
+        assertEquals(expected, requested);
+        assertArrayEquals(LARGE_CONTENT, Files.readAllBytes(target));
+        assertEquals(MultiDigest.toHex(MessageDigest.getInstance("SHA-1").digest(LARGE_CONTENT)), digest.results().get("SHA-1"));
+        assertFalse(Files.exists(tempDir.resolve("large.bin" + FileDownloader.PART_SUFFIX)));
+    }
+
+    @Test
+    @Timeout(60)
+    void segmentedDownloadCompletesWithASingleConnectionPerHost() throws Exception {
+        ConcurrencyController.setGlobal(new ConcurrencyController(Integer.MAX_VALUE, 1, Collections.emptyMap(), false));
+        Path target = tempDir.resolve("large.bin");
+
+        FileDownloader.download(largeUrl(), target, new NoOpProgressCallback(), null, LARGE_CONTENT.length, 4);
+
+        assertEquals(3, ranges.size());
+        assertArrayEquals(LARGE_CONTENT, Files.readAllBytes(target));
+    }
+
+    @Test
+    @Timeout(60)
+    void concurrentSegmentedDownloadsDoNotStarveEachOther() throws Exception {
+        ConcurrencyController.setGlobal(new ConcurrencyController(Integer.MAX_VALUE, 3, Collections.emptyMap(), false));
+        URL url = largeUrl();
+        ExecutorService downloads = Executors.newFixedThreadPool(3);
+        try {
+            // Every download holds one of the three slots with its first response before asking for its segments
+            List<Future<Path>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Path target = tempDir.resolve("large-" + i + ".bin");
+                futures.add(downloads.submit(() -> {
+                    FileDownloader.download(url, target, new NoOpProgressCallback(), null, LARGE_CONTENT.length, 4);
+                    return target;
+                }));
+            }
+            for (Future<Path> future : futures) {
+                assertArrayEquals(LARGE_CONTENT, Files.readAllBytes(future.get()));
+            }
+        } finally {
+            downloads.shutdownNow();
+        }
+        assertEquals(9, ranges.size());
+    }
+
+    @Test
+    void smallFileIsNotSegmented() throws Exception {
+        Path target = tempDir.resolve("file.bin");
+        FileDownloader.download(url(), target, new NoOpProgressCallback(), null, CONTENT.length, 4);
+
+        assertTrue(ranges.isEmpty());
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+    }
+
+    private URL url() throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/file.bin");
+    }
+
+    private URL largeUrl() throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/large.bin");
+    }
+
+    private void serve(HttpExchange exchange, byte[] content) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+
+        int start = 0;
+        int end = content.length - 1;
+        boolean partial = false;
+        if (range != null) {
+            ranges.add(range);
+            if (etag.equals(ifRange)) {
+                String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                start = Integer.parseInt(bounds[0]);
+                end = bounds[1].isEmpty() ? end : Integer.parseInt(bounds[1]);
+                partial = true;
+            }
+        }
+
+        int length = end - start + 1;
+        if (partial) {
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            exchange.sendResponseHeaders(206, length);
+        } else {
+            exchange.sendResponseHeaders(200, length);
+        }
+
+        OutputStream body = exchange.getResponseBody();
+        AtomicInteger truncated = range != null ? truncatedRangeResponses : truncatedResponses;
+        if (truncated.getAndDecrement() > 0) {
+            // Simulate the launcher being killed halfway through by dropping the connection
+            body.write(content, start, length / 2);
+            body.flush();
+            throw new IOException("Connection dropped");
+        }
+        body.write(content, start, length);
+        exchange.close();
+    }
+}
@@ -0,0 +1,97 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingPolicyTest {
+
+    @Test
+    void slowMirrorIsRacedAfterTheHedgeDelay() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(100);
+        CountDownLatch released = new CountDownLatch(1);
+
+        long start = System.nanoTime();
+        try {
+            String result = policy.race(Arrays.asList(
+                () -> {
+                    try {
+                        released.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "slow";
+                },
+                () -> "fast"
+            ));
+
+            assertEquals("fast", result);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        } finally {
+            released.countDown();
+        }
+    }
+
+    @Test
+    void failedMirrorFallsBackEvenWithoutHedging() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(0);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = policy.race(Arrays.asList(
+            () -> {
+                calls.incrementAndGet();
+                throw new IOException("primary down");
+            },
+            () -> {
+                calls.incrementAndGet();
+                return "fallback";
+            }
+        ));
+
+        assertEquals("fallback", result);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void lastFailureIsThrownWithTheOthersSuppressed() {
+        HedgingPolicy policy = new HedgingPolicy(0);
+
+        IOException failure = assertThrows(IOException.class, () -> policy.race(Arrays.<HedgingPolicy.Attempt<String>>asList(
+            () -> {
+                throw new IOException("primary down");
+            },
+            () -> {
+                throw new IOException("fallback down");
+            }
+        )));
+
+        assertEquals("fallback down", failure.getMessage());
+        assertEquals("primary down", failure.getSuppressed()[0].getMessage());
+    }
+
+    @Test
+    void delayFollowsThe95thPercentile() {
+        HedgingPolicy policy = new HedgingPolicy(2000);
+        assertEquals(2000, policy.delayMillis());
+
+        for (int i = 1; i <= 20; i++) {
+            policy.record(i * 10);
+        }
+        assertEquals(190, policy.delayMillis());
+
+        for (int i = 0; i < 3; i++) {
+            policy.record(60_000);
+        }
+        assertEquals(2000, policy.delayMillis());
+
+        assertEquals(-1, new HedgingPolicy(0).delayMillis());
+    }
+}
@@ -0,0 +1,51 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import org.junit.jupiter.api.Test;
+import team.terrafirmagreg.autopack.core.manage.NoOpProgressCallback;
+import team.terrafirmagreg.autopack.testsupport.TestPlatform;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IOOperationTest {
+
+    @Test
+    void copyFeedsEveryDigestInOnePass() throws Exception {
+        byte[] data = "hello".getBytes(StandardCharsets.UTF_8);
+        MultiDigest digest = MultiDigest.create(Arrays.asList("MD5", "SHA-1"),
+            new TestPlatform(Paths.get(".")).logger());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        IOOperation.copy(new ByteArrayInputStream(data), output, new NoOpProgressCallback(), data.length, digest, data.length);
+
+        assertArrayEquals(data, output.toByteArray());
+        assertTrue(digest.isFinished());
+        assertEquals(data.length, digest.length());
+        assertEquals("5d41402abc4b2a76b9719d911017c592", digest.results().get("MD5"));
+        assertEquals("aaf4c61ddcc5e8a2dabede0f3b482cd9aea9434d", digest.results().get("SHA-1"));
+    }
+
+    @Test
+    void copyAbortsWhenExceedingExpectedLength() {
+        byte[] data = new byte[20_000];
+        MultiDigest digest = MultiDigest.create(Arrays.asList("MD5"), new TestPlatform(Paths.get(".")).logger());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        IOException error = assertThrows(IOException.class, () -> IOOperation.copy(new ByteArrayInputStream(data),
+            output, new NoOpProgressCallback(), -1, digest, 10_000));
+
+        assertTrue(error.getMessage().contains("10000"));
+        assertTrue(output.size() <= 10_000);
+        assertFalse(digest.isFinished());
+    }
+}
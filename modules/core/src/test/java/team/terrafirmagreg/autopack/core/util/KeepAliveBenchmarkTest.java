@@ -0,0 +1,144 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares redirected https requests over a reused connection with the same requests paying a new TCP and TLS
+ * handshake each. Run with {@code -Dautopack.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "autopack.benchmark", matches = "true")
+class KeepAliveBenchmarkTest {
+    private static final int WARMUP_REQUESTS = 20;
+    private static final int REQUESTS = 200;
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+
+    static {
+        // Otherwise delayed acks of the separately written headers and body dominate every request
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    @Test
+    void reusedConnectionsSkipTheHandshakes() throws Exception {
+        SSLContext context = createContext();
+        HttpsServer server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(context));
+        server.createContext("/redirect", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.getResponseHeaders().add("Location", "/target");
+            respond(exchange, 302, "moved");
+        });
+        server.createContext("/target", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            respond(exchange, 200, "ok");
+        });
+        server.start();
+
+        HttpTransport previousTransport = WebClient.transport();
+        SSLSocketFactory previousFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        // The java.net.http client refuses to send Connection headers, the JDK connection cache does not
+        WebClient.setTransport(new UrlConnectionTransport());
+        HttpsURLConnection.setDefaultSSLSocketFactory(context.getSocketFactory());
+        try {
+            URL url = new URL("https://127.0.0.1:" + server.getAddress().getPort() + "/redirect");
+            Map<String, String> close = Collections.singletonMap("Connection", "close");
+
+            run(url, Collections.emptyMap(), WARMUP_REQUESTS);
+            run(url, close, WARMUP_REQUESTS);
+
+            clientPorts.clear();
+            long reusedNanos = run(url, Collections.emptyMap(), REQUESTS);
+            int reusedConnections = clientPorts.size();
+
+            clientPorts.clear();
+            long newNanos = run(url, close, REQUESTS);
+            int newConnections = clientPorts.size();
+
+            System.out.printf("%d redirected requests: %d ms over %d connection(s) with keep-alive, "
+                    + "%d ms over %d connections without%n", REQUESTS, TimeUnit.NANOSECONDS.toMillis(reusedNanos),
+                reusedConnections, TimeUnit.NANOSECONDS.toMillis(newNanos), newConnections);
+            assertEquals(1, reusedConnections);
+            assertEquals(REQUESTS * 2, newConnections);
+        } finally {
+            HttpsURLConnection.setDefaultSSLSocketFactory(previousFactory);
+            WebClient.setTransport(previousTransport);
+            server.stop(0);
+        }
+    }
+
+    private static long run(URL url, Map<String, String> headers, int count) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            try (WebGetResponse response = WebClient.get(url, headers);
+                 InputStream body = response.getInputStream()) {
+                assertEquals("ok", new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Creates a self-signed certificate for 127.0.0.1 which both the server and the client accept.
+     */
+    private SSLContext createContext() throws Exception {
+        Path keyStoreFile = tempDir.resolve("benchmark.p12");
+        Process keytool = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+            "-genkeypair", "-keystore", keyStoreFile.toString(), "-storetype", "PKCS12",
+            "-storepass", new String(PASSWORD), "-alias", "benchmark", "-keyalg", "RSA", "-keysize", "2048",
+            "-dname", "CN=127.0.0.1", "-ext", "SAN=ip:127.0.0.1", "-validity", "1")
+            .inheritIO()
+            .start();
+        assertEquals(0, keytool.waitFor());
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream inputStream = Files.newInputStream(keyStoreFile)) {
+            keyStore.load(inputStream, PASSWORD);
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, PASSWORD);
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+        return context;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,117 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLHandshakeException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    @Test
+    void transientStatusesAreRetried() throws IOException {
+        for (int status : Arrays.asList(408, 429, 500, 502, 503, 504)) {
+            assertTrue(RetryPolicy.isTransient(status(status, -1)), "HTTP " + status);
+        }
+        for (int status : Arrays.asList(400, 401, 403, 404, 416)) {
+            assertFalse(RetryPolicy.isTransient(status(status, -1)), "HTTP " + status);
+        }
+    }
+
+    @Test
+    void onlyPassingNetworkFailuresAreRetried() {
+        assertTrue(RetryPolicy.isTransient(new ConnectException("Connection refused")));
+        assertTrue(RetryPolicy.isTransient(new SocketTimeoutException("connect timed out")));
+        assertTrue(RetryPolicy.isTransient(new SocketException("Connection reset")));
+
+        assertFalse(RetryPolicy.isTransient(new UnknownHostException("api.modrinth.com")));
+        assertFalse(RetryPolicy.isTransient(new SSLHandshakeException("PKIX path building failed")));
+        assertFalse(RetryPolicy.isTransient(new SocketTimeoutException("Read timed out")));
+        assertFalse(RetryPolicy.isTransient(new IOException("Premature EOF")));
+    }
+
+    @Test
+    void readTimeoutsAreRetriedWhenTheTransferResumes() throws IOException {
+        RetryPolicy policy = new RetryPolicy(1, 1, 10);
+        SocketTimeoutException timeout = new SocketTimeoutException("Read timed out");
+
+        assertSame(timeout, assertThrows(SocketTimeoutException.class, () -> policy.start().retryOrThrow(timeout)));
+        policy.start().retryOrThrow(timeout, true);
+    }
+
+    @Test
+    void retryAfterIsReadInSecondsAndAsDate() {
+        assertEquals(120_000, RetryPolicy.serverDelayMillis(headers("Retry-After", "120")));
+
+        String date = ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        long delay = RetryPolicy.serverDelayMillis(headers("Retry-After", date));
+        assertTrue(delay > 25_000 && delay <= 30_000, String.valueOf(delay));
+
+        assertEquals(-1, RetryPolicy.serverDelayMillis(headers("Retry-After", "soon")));
+        assertEquals(-1, RetryPolicy.serverDelayMillis(Collections.emptyMap()));
+    }
+
+    @Test
+    void modrinthRateLimitResetIsUsedOnceExhausted() {
+        Map<String, List<String>> headers = headers("X-Ratelimit-Reset", "7");
+        headers.put("X-Ratelimit-Remaining", Collections.singletonList("0"));
+        assertEquals(7_000, RetryPolicy.serverDelayMillis(headers));
+
+        headers.put("X-Ratelimit-Remaining", Collections.singletonList("250"));
+        assertEquals(-1, RetryPolicy.serverDelayMillis(headers));
+    }
+
+    @Test
+    void excessiveServerDelayIsNotWaitedFor() throws IOException {
+        HttpStatusException failure = status(429, RetryPolicy.MAX_SERVER_DELAY_MILLIS + 1);
+
+        assertSame(failure, assertThrows(HttpStatusException.class,
+            () -> new RetryPolicy(3, 1, 10).start().retryOrThrow(failure)));
+    }
+
+    @Test
+    void sharedBudgetFailsFastOnceSpent() throws IOException {
+        RetryPolicy policy = new RetryPolicy(3, 1, 2);
+        IOException failure = new ConnectException("Connection refused");
+
+        RetryPolicy.Attempts first = policy.start();
+        first.retryOrThrow(failure);
+        first.retryOrThrow(failure);
+
+        // A fresh request may retry three times, but the budget of the whole run is gone
+        assertThrows(ConnectException.class, () -> policy.start().retryOrThrow(failure));
+
+        for (int i = 0; i < 10; i++) {
+            policy.start().succeeded();
+        }
+        policy.start().retryOrThrow(failure);
+    }
+
+    private static HttpStatusException status(int status, long retryAfterMillis) throws IOException {
+        return new HttpStatusException(status, new URL("https://example.com/file"), retryAfterMillis);
+    }
+
+    private static Map<String, List<String>> headers(String name, String value) {
+        Map<String, List<String>> headers = new HashMap<>();
+        headers.put(name, Collections.singletonList(value));
+        return headers;
+    }
+}
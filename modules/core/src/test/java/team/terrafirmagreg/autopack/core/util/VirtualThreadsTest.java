@@ -0,0 +1,33 @@
+package team.terrafirmagreg.autopack.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VirtualThreadsTest {
+
+    @Test
+    void executorIsOnlyAvailableOnJava21() {
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+        try {
+            assertEquals(Runtime.version().feature() >= 21, executor != null);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void propertyDisablesVirtualThreads() {
+        System.setProperty(VirtualThreads.PROPERTY, "false");
+        try {
+            assertNull(VirtualThreads.newPerTaskExecutor());
+        } finally {
+            System.clearProperty(VirtualThreads.PROPERTY);
+        }
+    }
+}
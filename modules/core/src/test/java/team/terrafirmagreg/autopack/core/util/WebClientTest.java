@@ -1,6 +1,9 @@
 package team.terrafirmagreg.autopack.core.util;
 
+import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
@@ -8,12 +11,55 @@ import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class WebClientTest {
+    private HttpServer server;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger busyResponses = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/redirect", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.getResponseHeaders().add("Location", "/target");
+            respond(exchange, 302, "moved");
+        });
+        server.createContext("/target", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            respond(exchange, 200, "ok");
+        });
+        server.createContext("/missing", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            requests.incrementAndGet();
+            respond(exchange, 404, "not found");
+        });
+        server.createContext("/busy", exchange -> {
+            requests.incrementAndGet();
+            if (busyResponses.getAndDecrement() > 0) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                respond(exchange, 503, "busy");
+            } else {
+                respond(exchange, 200, "ok");
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
 
     @Test
     void followsRedirectToFinalResource() throws Exception {
@@ -106,6 +152,82 @@ class WebClientTest {
         }
     }
 
+    @Test
+    void javaNetHttpTransportIsUsedWhenAvailable() {
+        assertEquals("HttpClientTransport", WebClient.transport().getClass().getSimpleName());
+    }
+
+    @Test
+    void connectionIsReusedAcrossRequestsRedirectsAndErrors() throws Exception {
+        assertSingleConnection();
+    }
+
+    @Test
+    void urlConnectionTransportReusesConnectionsToo() throws Exception {
+        HttpTransport previous = WebClient.transport();
+        WebClient.setTransport(new UrlConnectionTransport());
+        try {
+            assertSingleConnection();
+        } finally {
+            WebClient.setTransport(previous);
+        }
+    }
+
+    @Test
+    void unavailableServerIsRetriedAfterTheDelayItAskedFor() throws Exception {
+        busyResponses.set(2);
+
+        long start = System.nanoTime();
+        try (WebGetResponse response = WebClient.get(url("/busy"));
+             InputStream body = response.getInputStream()) {
+            assertEquals("ok", new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        assertEquals(3, requests.get());
+        // Retry-After: 0 replaces the exponential backoff
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+    }
+
+    @Test
+    void retriesStopAtTheLimit() throws Exception {
+        busyResponses.set(10);
+
+        HttpStatusException error = assertThrows(HttpStatusException.class,
+            () -> WebClient.get(url("/busy"), Collections.emptyMap(), new RetryPolicy(2)));
+
+        assertEquals(503, error.getStatus());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void clientErrorsAreNotRetried() throws Exception {
+        HttpStatusException error = assertThrows(HttpStatusException.class, () -> WebClient.get(url("/missing")));
+
+        assertEquals(404, error.getStatus());
+        assertEquals(1, requests.get());
+    }
+
+    private void assertSingleConnection() throws Exception {
+        // Every new client port is a new connection and with https a new TLS handshake
+        for (int i = 0; i < 20; i++) {
+            try (WebGetResponse response = WebClient.get(url("/redirect"));
+                 InputStream body = response.getInputStream()) {
+                assertEquals("ok", new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        IOException error = assertThrows(IOException.class, () -> WebClient.get(url("/missing")));
+        assertEquals("Server returned HTTP response code: 404 for URL: " + url("/missing"), error.getMessage());
+        try (WebGetResponse response = WebClient.get(url("/target"))) {
+            response.getInputStream().readAllBytes();
+        }
+
+        assertEquals(1, clientPorts.size());
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
     private static String readBody(InputStream inputStream) throws IOException {
         byte[] buffer = new byte[256];
         int read = inputStream.read(buffer);
@@ -114,4 +236,11 @@ class WebClientTest {
         }
         return new String(buffer, 0, read, StandardCharsets.UTF_8);
     }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
 }
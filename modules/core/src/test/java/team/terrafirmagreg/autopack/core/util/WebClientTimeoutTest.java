@@ -3,11 +3,19 @@ package team.terrafirmagreg.autopack.core.util;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class WebClientTimeoutTest {
@@ -39,4 +47,51 @@ class WebClientTimeoutTest {
             }
         }
     }
+
+    @Test
+    @Timeout(40)
+    void bodyReadThrowsWhenTheServerStallsMidBody() throws Exception {
+        Thread acceptThread = null;
+        try (ServerSocket server = new ServerSocket(0)) {
+            int port = server.getLocalPort();
+
+            acceptThread = new Thread(() -> {
+                try (Socket accepted = server.accept()) {
+                    BufferedReader request = new BufferedReader(
+                        new InputStreamReader(accepted.getInputStream(), StandardCharsets.US_ASCII));
+                    String line;
+                    do {
+                        line = request.readLine();
+                    } while (line != null && !line.isEmpty());
+                    OutputStream response = accepted.getOutputStream();
+                    response.write(("HTTP/1.1 200 OK\r\nContent-Length: 1000\r\n\r\npartial")
+                        .getBytes(StandardCharsets.US_ASCII));
+                    response.flush();
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException ignored) {
+                }
+            });
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+
+            URL url = new URL("http://127.0.0.1:" + port + "/test");
+            try (WebGetResponse response = WebClient.get(url, Collections.emptyMap(), RetryPolicy.NONE)) {
+                InputStream body = response.getInputStream();
+                byte[] buffer = new byte[1000];
+                int read = 0;
+                while (read < "partial".length()) {
+                    read += body.read(buffer, read, buffer.length - read);
+                }
+                assertEquals("partial", new String(buffer, 0, read, StandardCharsets.US_ASCII));
+                assertThrows(SocketTimeoutException.class, () -> body.read(buffer));
+            }
+        } finally {
+            if (acceptThread != null) {
+                acceptThread.interrupt();
+                acceptThread.join(1000);
+            }
+        }
+    }
 }
@@ -7,6 +7,7 @@ import team.terrafirmagreg.autopack.core.configuration.RemoteModInformation;
 import team.terrafirmagreg.autopack.core.configuration.RemoteModMetadata;
 import team.terrafirmagreg.autopack.core.exception.InstallException;
 import team.terrafirmagreg.autopack.core.manage.ProgressCallback;
+import team.terrafirmagreg.autopack.core.util.MultiDigest;
 
 import java.nio.file.Path;
 
@@ -74,7 +75,7 @@ public class TestRemoteMod extends RemoteMod {
 
     @Override
     public void performInstall(Path targetFile, ProgressCallback progressCallback, Director director,
-                               RemoteModInformation information) throws InstallException {
+                               RemoteModInformation information, MultiDigest digest) throws InstallException {
         if (installException != null) {
             throw installException;
         }
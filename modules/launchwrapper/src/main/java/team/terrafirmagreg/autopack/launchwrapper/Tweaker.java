@@ -5,6 +5,7 @@ import team.terrafirmagreg.autopack.launchwrapper.forge.ForgeLateLoader;
 import team.terrafirmagreg.autopack.i18n.Language;
 import team.terrafirmagreg.autopack.logging.JavaLogger;
 import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+import team.terrafirmagreg.autopack.util.Headless;
 import team.terrafirmagreg.autopack.util.PlatformDelegate;
 import team.terrafirmagreg.autopack.util.Side;
 import lombok.Getter;
@@ -15,7 +16,6 @@ import net.minecraft.launchwrapper.LaunchClassLoader;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -154,7 +154,7 @@ public class Tweaker implements ITweaker, PlatformDelegate {
 
     @Override
     public boolean headless() {
-        return GraphicsEnvironment.isHeadless();
+        return Headless.detect();
     }
 
     @Override
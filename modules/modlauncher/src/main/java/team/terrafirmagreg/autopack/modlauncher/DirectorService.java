@@ -2,6 +2,7 @@ package team.terrafirmagreg.autopack.modlauncher;
 
 import team.terrafirmagreg.autopack.Director;
 import team.terrafirmagreg.autopack.logging.LoggerDelegate;
+import team.terrafirmagreg.autopack.util.Headless;
 import team.terrafirmagreg.autopack.util.PlatformDelegate;
 import team.terrafirmagreg.autopack.util.Side;
 import cpw.mods.modlauncher.api.IEnvironment;
@@ -13,7 +14,6 @@ import team.terrafirmagreg.autopack.core.util.NetworkExceptions;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -21,36 +21,63 @@ import java.lang.reflect.Method;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 public class DirectorService implements ITransformationService, PlatformDelegate {
+    /**
+     * Runs Director next to the initialization of the other transformation services instead of before it. The mods
+     * directory is only final once scanning begins, so this relies on no other service reading it before that.
+     */
+    public static final String ASYNC_PROPERTY = "autopack.async";
+
     private final LoggerDelegate logger = new Log4jLogger(LogManager.getLogger("Director"));
     private Side side = Side.UNKNOWN;
     private Path gameDir;
+    private Director director;
+    private FutureTask<Boolean> pendingRun;
 
     @Override
     public void initialize(IEnvironment env) {
         this.side = figureOutSide(env);
         this.gameDir = env.getProperty(IEnvironment.Keys.GAMEDIR.get()).get();
-        Director director = new Director(this);
+        this.director = new Director(this);
         logger.info("Detected side: {0}", side);
 
-        try {
-            if (!director.call()) {
-                director.errorExit();
-            }
-        } catch (Exception e) {
-            String detail = NetworkExceptions.isConnectivityError(e)
-                ? "Network error: " + NetworkExceptions.describe(e)
-                : "Activation error";
-            director.addError(new InstallError(Level.SEVERE, detail, e));
-            director.errorExit();
+        if (Boolean.getBoolean(ASYNC_PROPERTY)) {
+            pendingRun = new FutureTask<>(director);
+            Thread thread = new Thread(pendingRun, "Director Async");
+            thread.setDaemon(true);
+            thread.start();
+            logger.info("Running Director in the background until mod scanning begins");
+            return;
         }
+        complete(director);
     }
 
     @Override
     public void beginScanning(IEnvironment iEnvironment) {
+        FutureTask<Boolean> run = pendingRun;
+        if (run == null) {
+            return;
+        }
+        pendingRun = null;
 
+        long start = System.nanoTime();
+        complete(() -> {
+            try {
+                return run.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        });
+        logger.debug("Waited {0} ms for Director to finish", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
     }
 
     @Override
@@ -58,6 +85,23 @@ public class DirectorService implements ITransformationService, PlatformDelegate
 
     }
 
+    private void complete(Callable<Boolean> run) {
+        try {
+            if (!run.call()) {
+                director.errorExit();
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            String detail = NetworkExceptions.isConnectivityError(e)
+                ? "Network error: " + NetworkExceptions.describe(e)
+                : "Activation error";
+            director.addError(new InstallError(Level.SEVERE, detail, e));
+            director.errorExit();
+        }
+    }
+
     @Override
     public String name() {
         return "Director";
@@ -106,7 +150,7 @@ public class DirectorService implements ITransformationService, PlatformDelegate
 
     @Override
     public boolean headless() {
-        return GraphicsEnvironment.isHeadless();
+        return Headless.detect();
     }
 
     public List<ITransformer> transformers() {